@@ -0,0 +1,425 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore;
+
+import consulo.annotation.component.ComponentScope;
+import consulo.annotation.component.ServiceAPI;
+import consulo.annotation.component.ServiceImpl;
+import consulo.application.Application;
+import consulo.ide.ServiceManager;
+import consulo.language.file.FileTypeManager;
+import consulo.virtualFileSystem.VirtualFile;
+import consulo.virtualFileSystem.event.*;
+import consulo.virtualFileSystem.fileType.FileType;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
+import mobi.hsz.idea.gitignore.indexing.ExternalIndexableSetContributor;
+import mobi.hsz.idea.gitignore.lang.IgnoreLanguage;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared dispatcher of the VFS events. It listens for the bulk events once for all consumers, sums every batch up into
+ * a single {@link Batch} and passes it to the registered {@link Handler}s, so a checkout that touches thousands of
+ * files results in one invalidation step per consumer. Ignore files are recognized by their names first, so file types
+ * are resolved only for the names associated with the ignore file types.
+ *
+ * @since 3.2
+ */
+@ServiceAPI(value = ComponentScope.APPLICATION, lazy = false)
+@ServiceImpl
+@Singleton
+public class FileEventsDispatcher {
+    /** Names of the ignore files of all languages, also matched as the extensions, i.e. <code>foo.gitignore</code>. */
+    @Nonnull
+    private static final List<String> IGNORE_FILE_NAMES = collectIgnoreFileNames();
+
+    /** Registered handlers. */
+    @Nonnull
+    private final List<Handler> handlers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns {@link FileEventsDispatcher} service instance.
+     *
+     * @return {@link FileEventsDispatcher} instance
+     */
+    @Nonnull
+    public static FileEventsDispatcher getInstance() {
+        return ServiceManager.getService(FileEventsDispatcher.class);
+    }
+
+    /**
+     * Constructor subscribes to the bulk VFS events.
+     *
+     * @param application current application
+     */
+    @Inject
+    public FileEventsDispatcher(@Nonnull Application application) {
+        application.getMessageBus().connect().subscribe(BulkFileListener.class, new BulkFileListener() {
+            @Override
+            public void after(@Nonnull List<? extends VFileEvent> events) {
+                dispatch(events);
+            }
+        });
+    }
+
+    /**
+     * Registers handler of the events batches.
+     *
+     * @param handler handler to add
+     */
+    public void addHandler(@Nonnull Handler handler) {
+        handlers.add(handler);
+    }
+
+    /**
+     * Unregisters handler of the events batches.
+     *
+     * @param handler handler to remove
+     */
+    public void removeHandler(@Nonnull Handler handler) {
+        handlers.remove(handler);
+    }
+
+    /**
+     * Sums given events up into the {@link Batch} and passes it to the handlers.
+     *
+     * @param events VFS events
+     */
+    private void dispatch(@Nonnull List<? extends VFileEvent> events) {
+        if (handlers.isEmpty() || events.isEmpty()) {
+            return;
+        }
+
+        Batch batch = new Batch();
+        for (VFileEvent event : events) {
+            batch.add(event);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        for (Handler handler : handlers) {
+            handler.handle(batch);
+        }
+    }
+
+    /**
+     * Checks if given name may belong to the ignore file - file named like one of the languages' ignore files or with
+     * its extension, waiting for the file type association, one of the known outer files or any other name associated
+     * with the ignore file type, i.e. by the user. Names are matched with the file type associations only, so file
+     * contents are never read and every file indexed by the ignore indexes is recognized.
+     *
+     * @param name file name
+     * @return name of the ignore file
+     */
+    private static boolean isIgnoreFileName(@Nullable String name) {
+        if (name == null) {
+            return false;
+        }
+        for (String ignoreFileName : IGNORE_FILE_NAMES) {
+            if (name.endsWith(ignoreFileName)) {
+                return true;
+            }
+        }
+        return IgnoreManager.FILE_TYPES_ASSOCIATION_QUEUE.containsKey(name)
+            || ExternalIndexableSetContributor.isAdditionalFileName(name)
+            || FileTypeManager.getInstance().getFileTypeByFileName(name) instanceof IgnoreFileType;
+    }
+
+    /**
+     * Collects names of the ignore files of all languages.
+     *
+     * @return file names
+     */
+    @Nonnull
+    private static List<String> collectIgnoreFileNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (IgnoreLanguage language : IgnoreBundle.LANGUAGES) {
+            names.add(language.getFilename());
+        }
+        return List.copyOf(names);
+    }
+
+    /** Handler of the events batches. */
+    public interface Handler {
+        /**
+         * Handles summed up events of the single VFS change.
+         *
+         * @param batch events batch
+         */
+        void handle(@Nonnull Batch batch);
+    }
+
+    /** Changed ignore file. */
+    public static final class IgnoreFileChange {
+        /** Changed file. */
+        @Nonnull
+        private final VirtualFile file;
+
+        /** Ignore file type of the file, before the rename if it was renamed. */
+        @Nonnull
+        private final IgnoreFileType fileType;
+
+        /** File was moved or renamed. */
+        private final boolean relocated;
+
+        /**
+         * Constructor.
+         *
+         * @param file      changed file
+         * @param fileType  ignore file type
+         * @param relocated file was moved or renamed
+         */
+        IgnoreFileChange(@Nonnull VirtualFile file, @Nonnull IgnoreFileType fileType, boolean relocated) {
+            this.file = file;
+            this.fileType = fileType;
+            this.relocated = relocated;
+        }
+
+        /**
+         * Returns changed file.
+         *
+         * @return file
+         */
+        @Nonnull
+        public VirtualFile getFile() {
+            return file;
+        }
+
+        /**
+         * Returns ignore file type of the file.
+         *
+         * @return file type
+         */
+        @Nonnull
+        public IgnoreFileType getFileType() {
+            return fileType;
+        }
+
+        /**
+         * Checks if file was moved or renamed.
+         *
+         * @return file was relocated
+         */
+        public boolean isRelocated() {
+            return relocated;
+        }
+    }
+
+    /** Summary of the VFS events delivered at once. */
+    public static final class Batch {
+        /** All files affected by the events. */
+        @Nonnull
+        private final List<VirtualFile> files = new ArrayList<>();
+
+        /** Created, deleted, copied, moved and renamed files. */
+        @Nonnull
+        private final List<VirtualFile> structureChanges = new ArrayList<>();
+
+        /** Moved and renamed files. */
+        @Nonnull
+        private final List<VirtualFile> relocated = new ArrayList<>();
+
+        /** Deleted files. */
+        @Nonnull
+        private final List<VirtualFile> deleted = new ArrayList<>();
+
+        /** Paths of the structure changes, including the paths before the moves and renames. */
+        @Nonnull
+        private final List<String> paths = new ArrayList<>();
+
+        /** Changed ignore files. */
+        @Nonnull
+        private final List<IgnoreFileChange> ignoreFiles = new ArrayList<>();
+
+        /** Constructor. */
+        Batch() {
+        }
+
+        /**
+         * Adds single event to the batch.
+         *
+         * @param event VFS event
+         */
+        private void add(@Nonnull VFileEvent event) {
+            if (event instanceof VFileContentChangeEvent) {
+                VirtualFile file = event.getFile();
+                files.add(file);
+                addIgnoreFile(file, file.getName(), false);
+            }
+            else if (event instanceof VFileCreateEvent createEvent) {
+                VirtualFile file = createEvent.getFile();
+                if (file != null) {
+                    addStructureChange(file, file.getPath());
+                    addIgnoreFile(file, createEvent.getChildName(), false);
+                }
+            }
+            else if (event instanceof VFileDeleteEvent) {
+                VirtualFile file = event.getFile();
+                deleted.add(file);
+                addStructureChange(file, event.getPath());
+                addIgnoreFile(file, file.getName(), false);
+            }
+            else if (event instanceof VFileCopyEvent copyEvent) {
+                VirtualFile file = copyEvent.findCreatedFile();
+                if (file != null) {
+                    addStructureChange(file, file.getPath());
+                    addIgnoreFile(file, file.getName(), false);
+                }
+            }
+            else if (event instanceof VFileMoveEvent moveEvent) {
+                VirtualFile file = event.getFile();
+                relocated.add(file);
+                addStructureChange(file, file.getPath());
+                paths.add(moveEvent.getOldParent().getPath() + '/' + file.getName());
+                addIgnoreFile(file, file.getName(), true);
+            }
+            else if (event instanceof VFilePropertyChangeEvent propertyEvent
+                && VirtualFile.PROP_NAME.equals(propertyEvent.getPropertyName())) {
+                VirtualFile file = event.getFile();
+                String oldName = String.valueOf(propertyEvent.getOldValue());
+                relocated.add(file);
+                addStructureChange(file, file.getPath());
+                VirtualFile parent = file.getParent();
+                if (parent != null) {
+                    paths.add(parent.getPath() + '/' + oldName);
+                }
+                if (!addIgnoreFile(file, file.getName(), true)) {
+                    addIgnoreFile(file, oldName, true);
+                }
+            }
+        }
+
+        /**
+         * Registers created, deleted, copied, moved or renamed file.
+         *
+         * @param file changed file
+         * @param path path of the file
+         */
+        private void addStructureChange(@Nonnull VirtualFile file, @Nonnull String path) {
+            files.add(file);
+            structureChanges.add(file);
+            paths.add(path);
+        }
+
+        /**
+         * Registers change of the ignore file if the name belongs to the ignore file. File type is resolved only for
+         * the names that pass {@link #isIgnoreFileName(String)}.
+         *
+         * @param file      changed file
+         * @param name      name to check - current or previous name of the file
+         * @param relocated file was moved or renamed
+         * @return file is an ignore file
+         */
+        private boolean addIgnoreFile(@Nonnull VirtualFile file, @Nullable String name, boolean relocated) {
+            if (!isIgnoreFileName(name)) {
+                return false;
+            }
+
+            FileType fileType = name.equals(file.getName())
+                ? file.getFileType()
+                : FileTypeManager.getInstance().getFileTypeByFileName(name);
+            if (fileType instanceof IgnoreFileType ignoreFileType) {
+                ignoreFiles.add(new IgnoreFileChange(file, ignoreFileType, relocated));
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Checks if batch contains no changes.
+         *
+         * @return batch is empty
+         */
+        boolean isEmpty() {
+            return files.isEmpty();
+        }
+
+        /**
+         * Returns all files affected by the events.
+         *
+         * @return files
+         */
+        @Nonnull
+        public List<VirtualFile> getFiles() {
+            return files;
+        }
+
+        /**
+         * Returns created, deleted, copied, moved and renamed files.
+         *
+         * @return files
+         */
+        @Nonnull
+        public List<VirtualFile> getStructureChanges() {
+            return structureChanges;
+        }
+
+        /**
+         * Returns moved and renamed files.
+         *
+         * @return files
+         */
+        @Nonnull
+        public List<VirtualFile> getRelocated() {
+            return relocated;
+        }
+
+        /**
+         * Returns deleted files.
+         *
+         * @return files
+         */
+        @Nonnull
+        public List<VirtualFile> getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * Returns paths of the structure changes, including the paths before the moves and renames.
+         *
+         * @return paths
+         */
+        @Nonnull
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * Returns changed ignore files.
+         *
+         * @return ignore files changes
+         */
+        @Nonnull
+        public List<IgnoreFileChange> getIgnoreFiles() {
+            return ignoreFiles;
+        }
+    }
+}
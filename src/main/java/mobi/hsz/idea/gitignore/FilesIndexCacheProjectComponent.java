@@ -36,8 +36,6 @@ import consulo.project.Project;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.lang.StringUtil;
 import consulo.virtualFileSystem.VirtualFile;
-import consulo.virtualFileSystem.VirtualFileManager;
-import consulo.virtualFileSystem.event.*;
 import jakarta.annotation.Nonnull;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
@@ -46,14 +44,13 @@ import mobi.hsz.idea.gitignore.util.MatcherUtil;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 /**
  * Cache that retrieves matching files using given {@link Pattern}.
- * It uses {@link VirtualFileListener} to handle changes in the files tree and clear cached entries
+ * It uses {@link FileEventsDispatcher} to handle changes in the files tree and clear cached entries
  * for the specific pattern parts.
  *
  * @author Jakub Chrzanowski <jakub@hsz.mobi>
@@ -67,54 +64,26 @@ public class FilesIndexCacheProjectComponent implements Disposable {
     @Nonnull
     private final ConcurrentMap<String, Collection<VirtualFile>> cacheMap;
 
-    /** {@link VirtualFileManager} instance. */
-    @Nonnull
-    private final VirtualFileManager virtualFileManager;
-
     /** {@link FileIndex} instance. */
     @Nonnull
     private final FileIndex projectFileIndex;
 
-    /** {@link VirtualFileListener} instance to watch for operations on the filesystem. */
+    /** {@link FileEventsDispatcher.Handler} instance to watch for operations on the filesystem. */
     @Nonnull
-    private final VirtualFileListener virtualFileListener = new VirtualFileListener() {
+    private final FileEventsDispatcher.Handler fileEventsHandler = new FileEventsDispatcher.Handler() {
         @Override
-        public void propertyChanged(@Nonnull VirtualFilePropertyEvent event) {
-            if (event.getPropertyName().equals("name")) {
-                removeAffectedCaches(event);
+        public void handle(@Nonnull FileEventsDispatcher.Batch batch) {
+            if (batch.getPaths().isEmpty() || cacheMap.isEmpty()) {
+                return;
             }
-        }
-
-        @Override
-        public void fileCreated(@Nonnull VirtualFileEvent event) {
-            removeAffectedCaches(event);
-        }
 
-        @Override
-        public void fileDeleted(@Nonnull VirtualFileEvent event) {
-            removeAffectedCaches(event);
-        }
-
-        @Override
-        public void fileMoved(@Nonnull VirtualFileMoveEvent event) {
-            removeAffectedCaches(event);
-        }
-
-        @Override
-        public void fileCopied(@Nonnull VirtualFileCopyEvent event) {
-            removeAffectedCaches(event);
-        }
-
-        @Override
-        public void beforeFileMovement(@Nonnull VirtualFileMoveEvent event) {
-            removeAffectedCaches(event);
-        }
-
-        private void removeAffectedCaches(@Nonnull VirtualFileEvent event) {
             for (String key : cacheMap.keySet()) {
-                List<String> parts = StringUtil.split(key, Constants.DOLLAR);
-                if (MatcherUtil.matchAnyPart(parts.toArray(new String[0]), event.getFile().getPath())) {
-                    cacheMap.remove(key);
+                String[] parts = StringUtil.split(key, Constants.DOLLAR).toArray(new String[0]);
+                for (String path : batch.getPaths()) {
+                    if (MatcherUtil.matchAnyPart(parts, path)) {
+                        cacheMap.remove(key);
+                        break;
+                    }
                 }
             }
         }
@@ -131,16 +100,15 @@ public class FilesIndexCacheProjectComponent implements Disposable {
     }
 
     /**
-     * Initializes {@link #cacheMap} and {@link VirtualFileManager}.
+     * Initializes {@link #cacheMap} and registers {@link #fileEventsHandler}.
      *
      * @param project current project
      */
     @Inject
     public FilesIndexCacheProjectComponent(@Nonnull Project project) {
         cacheMap = ContainerUtil.newConcurrentMap();
-        virtualFileManager = VirtualFileManager.getInstance();
         projectFileIndex = ProjectRootManager.getInstance(project).getFileIndex();
-        virtualFileManager.addVirtualFileListener(virtualFileListener);
+        FileEventsDispatcher.getInstance().addHandler(fileEventsHandler);
     }
 
     /**
@@ -183,7 +151,7 @@ public class FilesIndexCacheProjectComponent implements Disposable {
 
     @Override
     public void dispose() {
-        virtualFileManager.removeVirtualFileListener(virtualFileListener);
+        FileEventsDispatcher.getInstance().removeHandler(fileEventsHandler);
         cacheMap.clear();
     }
 }
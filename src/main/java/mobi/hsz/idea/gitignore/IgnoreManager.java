@@ -28,10 +28,13 @@ import consulo.annotation.component.ComponentScope;
 import consulo.annotation.component.ServiceAPI;
 import consulo.annotation.component.ServiceImpl;
 import consulo.application.Application;
+import consulo.application.ReadAction;
 import consulo.application.progress.ProgressManager;
 import consulo.component.messagebus.MessageBusConnection;
+import consulo.container.boot.ContainerPathManager;
 import consulo.disposer.Disposable;
 import consulo.language.file.FileTypeManager;
+import consulo.logging.Logger;
 import consulo.module.content.layer.event.ModuleRootListener;
 import consulo.module.event.ModuleListener;
 import consulo.project.DumbService;
@@ -40,18 +43,11 @@ import consulo.project.event.DumbModeListener;
 import consulo.project.ui.view.ProjectView;
 import consulo.project.ui.view.ProjectViewPane;
 import consulo.util.collection.ContainerUtil;
-import consulo.util.lang.Pair;
-import consulo.util.lang.StringUtil;
 import consulo.versionControlSystem.ProjectLevelVcsManager;
 import consulo.versionControlSystem.root.VcsRoot;
 import consulo.virtualFileSystem.VirtualFile;
 import consulo.virtualFileSystem.VirtualFileManager;
-import consulo.virtualFileSystem.event.VirtualFileCopyEvent;
-import consulo.virtualFileSystem.event.VirtualFileEvent;
-import consulo.virtualFileSystem.event.VirtualFileListener;
-import consulo.virtualFileSystem.event.VirtualFileMoveEvent;
 import consulo.virtualFileSystem.fileType.FileNameMatcherFactory;
-import consulo.virtualFileSystem.fileType.FileType;
 import consulo.virtualFileSystem.status.FileStatusManager;
 import git4idea.GitVcs;
 import jakarta.annotation.Nonnull;
@@ -62,16 +58,29 @@ import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
 import mobi.hsz.idea.gitignore.file.type.kind.GitExcludeFileType;
 import mobi.hsz.idea.gitignore.file.type.kind.GitFileType;
 import mobi.hsz.idea.gitignore.indexing.ExternalIndexableSetContributor;
+import mobi.hsz.idea.gitignore.indexing.IgnoreDirectoryIndex;
 import mobi.hsz.idea.gitignore.indexing.IgnoreEntryOccurrence;
 import mobi.hsz.idea.gitignore.indexing.IgnoreFilesIndex;
+import mobi.hsz.idea.gitignore.indexing.IgnoreFilesLoader;
 import mobi.hsz.idea.gitignore.lang.IgnoreLanguage;
+import mobi.hsz.idea.gitignore.rules.IgnoreRuleSet;
+import mobi.hsz.idea.gitignore.rules.IgnoreRuleTrie;
+import mobi.hsz.idea.gitignore.rules.RuleSnapshot;
+import mobi.hsz.idea.gitignore.rules.StartupSnapshot;
 import mobi.hsz.idea.gitignore.settings.IgnoreSettings;
 import mobi.hsz.idea.gitignore.util.*;
 import mobi.hsz.idea.gitignore.util.exec.ExternalExec;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static mobi.hsz.idea.gitignore.RefreshTrackedIgnoredListener.TRACKED_IGNORED_REFRESH;
 import static mobi.hsz.idea.gitignore.settings.IgnoreSettings.KEY;
@@ -86,6 +95,18 @@ import static mobi.hsz.idea.gitignore.settings.IgnoreSettings.KEY;
 @ServiceImpl
 @Singleton
 public class IgnoreManager implements Disposable {
+    private static final Logger LOG = Logger.getInstance(IgnoreManager.class);
+
+    /** Plugin's work queue shared by all projects. */
+    @Nonnull
+    private static final CoalescingScheduler SCHEDULER = new CoalescingScheduler(2);
+
+    /** Maximum amount of the directories which dumb mode rules are kept in {@link #dumbRuleSnapshots}. */
+    private static final int MAX_DUMB_RULE_SNAPSHOTS = 1000;
+
+    /** Maximum amount of the changed tracked and ignored files that are refreshed one by one. */
+    private static final int MAX_TRACKED_IGNORED_UPDATES = 200;
+
     /** List of all available {@link IgnoreFileType}. */
     private static final List<IgnoreFileType> FILE_TYPES =
         ContainerUtil.map(IgnoreBundle.LANGUAGES, IgnoreLanguage::getFileType);
@@ -133,117 +154,217 @@ public class IgnoreManager implements Disposable {
 
     /** List of the new files that were not covered by {@link #confirmedIgnoredFiles} yet. */
     @Nonnull
-    private final HashSet<VirtualFile> notConfirmedIgnoredFiles = new HashSet<>();
+    private final Set<VirtualFile> notConfirmedIgnoredFiles = ConcurrentHashMap.newKeySet();
 
     /** References to the indexed {@link IgnoreEntryOccurrence}. */
     @Nonnull
     private final CachedConcurrentMap<IgnoreFileType, Collection<IgnoreEntryOccurrence>> cachedIgnoreFilesIndex =
         CachedConcurrentMap.create(key -> IgnoreFilesIndex.getEntries(getProject(), key));
 
+    /**
+     * Ignore files changed since {@link #cachedIgnoreFilesIndex} was fetched, mapped with their URLs and grouped by
+     * the file type. Their entries are refreshed with the {@link IgnoreDirectoryIndex} lookups.
+     */
+    @Nonnull
+    private final ConcurrentMap<IgnoreFileType, ConcurrentMap<String, VirtualFile>> changedIgnoreFiles =
+        ContainerUtil.newConcurrentMap();
+
     /** References to the indexed outer files. */
     @Nonnull
     private final CachedConcurrentMap<IgnoreFileType, Collection<VirtualFile>> cachedOuterFiles =
         CachedConcurrentMap.create(key -> key.getIgnoreLanguage().getOuterFiles(getProject()));
 
+    /** Version of the rules state, incremented on every change that affects {@link #ruleSnapshot}. */
     @Nonnull
-    private final ExpiringMap<VirtualFile, Boolean> expiringStatusCache = new ExpiringMap<>(1000);
+    private final AtomicLong rulesVersion = new AtomicLong(1);
 
-    /** {@link FileStatusManager#fileStatusesChanged()} method wrapped with {@link Debounced}. */
-    private final Debounced debouncedStatusesChanged = new Debounced(1000) {
-        @Override
-        protected void task(@Nullable Object argument) {
-            expiringStatusCache.clear();
-            statusManager.fileStatusesChanged();
-        }
-    };
+    /**
+     * Whole {@link #ruleSnapshot} has to be rebuilt. Otherwise outdated snapshot is updated only with the changed
+     * ignore files.
+     */
+    @Nonnull
+    private final AtomicBoolean rebuildRules = new AtomicBoolean(true);
 
-    /** {@link FileStatusManager#fileStatusesChanged()} method wrapped with {@link Debounced}. */
-    private final Debounced<Boolean> debouncedRefreshTrackedIgnores = new Debounced<>(1000) {
-        @Override
-        protected void task(@Nullable Boolean refresh) {
-            if (Boolean.TRUE.equals(refresh)) {
-                refreshTrackedIgnoredRunnable.refresh();
-            }
-            else {
-                refreshTrackedIgnoredRunnable.run();
-            }
-        }
-    };
+    /** Lock that guards rebuilding and updating of {@link #ruleSnapshot}. */
+    @Nonnull
+    private final ReentrantLock ruleSnapshotLock = new ReentrantLock();
 
-    /** {@link DumbModeListener#exitDumbMode()} method body wrapped with {@link Debounced}. */
-    private final Debounced<Boolean> debouncedExitDumbMode = new Debounced<>(3000) {
-        @Override
-        protected void task(@Nullable Boolean refresh) {
-            cachedIgnoreFilesIndex.clear();
-            for (Map.Entry<String, IgnoreFileType> entry : FILE_TYPES_ASSOCIATION_QUEUE.entrySet()) {
-                associateFileType(entry.getKey(), entry.getValue());
-            }
-            debouncedStatusesChanged.run();
-        }
-    };
+    /** Last published {@link RuleSnapshot}, outdated if its version differs from {@link #rulesVersion}. */
+    @Nonnull
+    private final AtomicReference<RuleSnapshot> ruleSnapshot = new AtomicReference<>(RuleSnapshot.EMPTY);
+
+    /** Ignored statuses of the files and directories, invalidated with {@link #ruleSnapshot} and by VFS events. */
+    @Nonnull
+    private final FileStatusCache statusCache = new FileStatusCache();
+
+    /** Ignore files resolved from the URLs of the indexed entries. */
+    @Nonnull
+    private final FileUrlCache fileUrlCache = new FileUrlCache();
+
+    /** Loader of the ignore files used in dumb mode, when the indexes are not available. */
+    @Nonnull
+    private final IgnoreFilesLoader filesLoader = new IgnoreFilesLoader();
+
+    /** Rules restored from the {@link StartupSnapshot}, used in dumb mode until the indexes are ready. */
+    @Nullable
+    private volatile RuleSnapshot startupRules;
 
     /**
-     * Scheduled feature connected with {@link #debouncedRefreshTrackedIgnores}.
+     * Rules built in dumb mode for the children of the directories, valid as long as their version is equal to
+     * {@link #rulesVersion}.
      */
     @Nonnull
-    private final InterruptibleScheduledFuture refreshTrackedIgnoredFeature;
+    private final ConcurrentMap<VirtualFile, RuleSnapshot> dumbRuleSnapshots = ContainerUtil.newConcurrentMap();
 
-    /** {@link IgnoreManager} working flag. */
-    private boolean working;
+    /**
+     * Directories checked for the ignore files unknown to {@link #startupRules}, mapped with the result of
+     * {@link #isCoveredByStartupRules(RuleSnapshot, VirtualFile, VirtualFile)}.
+     */
+    @Nonnull
+    private final ConcurrentMap<VirtualFile, Boolean> startupCoveredDirectories = ContainerUtil.newConcurrentMap();
+
+    /** Last loaded or saved {@link StartupSnapshot}, its content hashes are reused by the next save. */
+    @Nullable
+    private volatile StartupSnapshot startupSnapshot;
 
-    /** List of available VCS roots for the current project. */
+    /** Names of the ignored top-level directories restored from the {@link StartupSnapshot}. */
     @Nonnull
-    private final List<VcsRoot> vcsRoots = new ArrayList<>();
+    private volatile Set<String> startupIgnoredDirectories = Set.of();
 
-    /** {@link VirtualFileListener} instance to check if file's content was changed. */
+    /** Statuses reported by {@link #isFileIgnored(VirtualFile)}, used to refresh only the changed ones. */
     @Nonnull
-    private final VirtualFileListener virtualFileListener = new VirtualFileListener() {
-        @Override
-        public void contentsChanged(@Nonnull VirtualFileEvent event) {
-            handleEvent(event);
-        }
+    private final StatusDeltaTracker reportedStatuses = new StatusDeltaTracker(20000, 200);
 
-        @Override
-        public void fileCreated(@Nonnull VirtualFileEvent event) {
-            handleEvent(event);
-            notConfirmedIgnoredFiles.add(event.getFile());
-            debouncedRefreshTrackedIgnores.run(true);
-        }
+    /** {@link #statusesChanged(Boolean)} task, merged requests refresh all statuses if any of them asked for it. */
+    @Nonnull
+    private final CoalescingScheduler.Task<Boolean> statusesChangedTask = new CoalescingScheduler.Task<>(
+        "statuses changed", CoalescingScheduler.Priority.NORMAL, 1000, Boolean::logicalOr, this::statusesChanged
+    );
 
-        @Override
-        public void fileDeleted(@Nonnull VirtualFileEvent event) {
-            handleEvent(event);
-            notConfirmedIgnoredFiles.add(event.getFile());
-            debouncedRefreshTrackedIgnores.run(true);
-        }
+    /**
+     * {@link RefreshTrackedIgnoredRunnable#run(boolean)} task, merged request is silent only if all requests are, so
+     * {@link TrackedIgnoredListener} is notified if any of them asked for it.
+     */
+    @Nonnull
+    private final CoalescingScheduler.Task<Boolean> refreshTrackedIgnoredTask = new CoalescingScheduler.Task<>(
+        "tracked ignored refresh", CoalescingScheduler.Priority.LOW, 1000, Boolean::logicalAnd, this::trackedIgnored
+    );
 
-        @Override
-        public void fileMoved(@Nonnull VirtualFileMoveEvent event) {
-            handleEvent(event);
-            notConfirmedIgnoredFiles.add(event.getFile());
-            debouncedRefreshTrackedIgnores.run(true);
-        }
+    /** {@link #exitDumbMode()} task. */
+    @Nonnull
+    private final CoalescingScheduler.Task<Void> exitDumbModeTask = new CoalescingScheduler.Task<>(
+        "exit dumb mode", CoalescingScheduler.Priority.HIGH, 3000, (first, second) -> first, argument -> exitDumbMode()
+    );
+
+    /** {@link IgnoreManager} working flag. */
+    private boolean working;
 
+    /** {@link FileEventsDispatcher.Handler} instance to handle changed files and ignore files. */
+    @Nonnull
+    private final FileEventsDispatcher.Handler fileEventsHandler = new FileEventsDispatcher.Handler() {
         @Override
-        public void fileCopied(@Nonnull VirtualFileCopyEvent event) {
-            handleEvent(event);
-            notConfirmedIgnoredFiles.add(event.getFile());
-            debouncedRefreshTrackedIgnores.run(true);
+        public void handle(@Nonnull FileEventsDispatcher.Batch batch) {
+            for (VirtualFile file : batch.getFiles()) {
+                statusCache.invalidate(file);
+            }
+            fileUrlCache.invalidate(batch.getDeleted());
+            fileUrlCache.invalidate(batch.getRelocated());
+            for (VirtualFile file : batch.getRelocated()) {
+                if (file.isDirectory()) {
+                    statusCache.invalidateAll();
+                    break;
+                }
+            }
+
+            boolean ignoreFilesChanged = !batch.getIgnoreFiles().isEmpty();
+            if (ignoreFilesChanged) {
+                handleIgnoreFiles(batch.getIgnoreFiles());
+            }
+
+            if (!batch.getStructureChanges().isEmpty()) {
+                notConfirmedIgnoredFiles.addAll(batch.getStructureChanges());
+                refreshTrackedIgnored(true);
+            }
+            else if (ignoreFilesChanged) {
+                refreshTrackedIgnored(false);
+            }
         }
 
-        private void handleEvent(@Nonnull VirtualFileEvent event) {
-            FileType fileType = event.getFile().getFileType();
-            if (fileType instanceof IgnoreFileType ignoreFileType) {
-                cachedIgnoreFilesIndex.remove(ignoreFileType);
-                cachedOuterFiles.remove(ignoreFileType);
+        /**
+         * Updates cached indexes and outer files with all ignore files changed in the batch and invalidates rules
+         * once for all of them. Edited and created ignore files located in the project invalidate only statuses of
+         * the directories their rules are relative to, and only their rules are recompiled.
+         *
+         * @param changes changed ignore files
+         */
+        private void handleIgnoreFiles(@Nonnull List<FileEventsDispatcher.IgnoreFileChange> changes) {
+            boolean dumb = DumbService.isDumb(myProject);
+            boolean full = dumb || startupRules != null;
+            RuleSnapshot snapshot = ruleSnapshot.get();
+            Set<VirtualFile> scopes = new HashSet<>();
+            Set<IgnoreFileType> outerTypes = new HashSet<>();
+            for (FileEventsDispatcher.IgnoreFileChange change : changes) {
+                VirtualFile file = change.getFile();
+                IgnoreFileType fileType = change.getFileType();
+                VirtualFile directory = file.getParent();
+                VirtualFile scope = Utils.isInProject(file, myProject)
+                    ? getRulesDirectory(file, fileType, myProject.getBaseDir())
+                    : null;
+                if (change.isRelocated() || directory == null || dumb) {
+                    cachedIgnoreFilesIndex.remove(fileType);
+                    full = true;
+                }
+                else {
+                    changedIgnoreFiles.computeIfAbsent(fileType, key -> ContainerUtil.newConcurrentMap())
+                        .put(file.getUrl(), directory);
+                    if (scope == null) {
+                        full = true;
+                    }
+                    else {
+                        scopes.add(scope);
+                    }
+                }
 
-                if (fileType instanceof GitExcludeFileType) {
-                    cachedOuterFiles.remove(GitFileType.INSTANCE);
+                if (scope == null || fileType instanceof GitExcludeFileType || snapshot.isOuterFile(fileType, file)) {
+                    outerTypes.add(fileType);
+                    if (fileType instanceof GitExcludeFileType) {
+                        outerTypes.add(GitFileType.INSTANCE);
+                    }
                 }
-                expiringStatusCache.clear();
-                debouncedStatusesChanged.run();
-                debouncedRefreshTrackedIgnores.run();
             }
+
+            for (IgnoreFileType fileType : outerTypes) {
+                refreshOuterFiles(fileType);
+            }
+            startupRules = null;
+            startupIgnoredDirectories = Set.of();
+            startupCoveredDirectories.clear();
+            if (full) {
+                invalidateRules();
+            }
+            else {
+                invalidateRules(scopes);
+            }
+            refreshStatuses();
+        }
+
+        /**
+         * Refetches outer files of the given type in the background. Previous files are used until the new ones are
+         * known, then the rules are rebuilt with them.
+         *
+         * @param fileType ignore file type
+         */
+        private void refreshOuterFiles(@Nonnull IgnoreFileType fileType) {
+            cachedOuterFiles.refresh(fileType).thenAccept(files -> {
+                RuleSnapshot snapshot = ruleSnapshot.get();
+                if (files != null && snapshot.isEnabled(fileType)
+                    && snapshot.getOuterFiles(fileType).equals(new HashSet<>(files))) {
+                    return;
+                }
+                ExternalIndexableSetContributor.invalidateCache(myProject);
+                invalidateRules();
+                refreshStatuses();
+            });
         }
     };
 
@@ -261,10 +382,11 @@ public class IgnoreManager implements Disposable {
                 case OUTER_IGNORE_RULES:
                 case LANGUAGES:
                     IgnoreBundle.ENABLED_LANGUAGES.clear();
+                    invalidateRules();
                     if (isEnabled()) {
                         if (working) {
-                            debouncedStatusesChanged.run();
-                            debouncedRefreshTrackedIgnores.run();
+                            refreshStatuses();
+                            refreshTrackedIgnored(false);
                         }
                         else {
                             enable();
@@ -304,11 +426,11 @@ public class IgnoreManager implements Disposable {
         this.settings = IgnoreSettings.getInstance();
         this.statusManager = FileStatusManager.getInstance(project);
         this.refreshTrackedIgnoredRunnable = new RefreshTrackedIgnoredRunnable();
-        this.refreshTrackedIgnoredFeature =
-            new InterruptibleScheduledFuture(debouncedRefreshTrackedIgnores, 10000, 5);
-        this.refreshTrackedIgnoredFeature.setTrailing(true);
         this.projectLevelVcsManager = ProjectLevelVcsManager.getInstance(project);
-        this.commonRunnableListeners = new CommonRunnableListeners(debouncedStatusesChanged);
+        this.commonRunnableListeners = new CommonRunnableListeners(() -> {
+            invalidateRules();
+            refreshStatuses();
+        });
     }
 
     public Project getProject() {
@@ -332,113 +454,701 @@ public class IgnoreManager implements Disposable {
      * @return file is ignored
      */
     public boolean isFileIgnored(@Nonnull VirtualFile file) {
-        Boolean cached = expiringStatusCache.get(file);
+        Boolean cached = statusCache.get(file);
         VirtualFile baseDir = myProject.getBaseDir();
         if (cached != null) {
             return cached;
         }
         if (Application.get().isDisposed() || myProject.isDisposed()
-            || DumbService.isDumb(myProject) || !isEnabled() || baseDir == null || !Utils.isUnder(file, baseDir)) {
+            || !isEnabled() || baseDir == null || !Utils.isUnder(file, baseDir)) {
             return false;
         }
 
-        boolean ignored = false;
-        boolean matched = false;
-        int valuesCount = 0;
+        int generation = statusCache.getGeneration();
+        RuleSnapshot snapshot;
+        if (DumbService.isDumb(myProject)) {
+            VirtualFile directory = file.getParent();
+            if (directory == null) {
+                return reportStatus(file, false, generation);
+            }
 
-        for (IgnoreFileType fileType : FILE_TYPES) {
+            snapshot = startupRules;
+            if (snapshot == null || !isCoveredByStartupRules(snapshot, directory, baseDir)) {
+                snapshot = getDumbRuleSnapshot(directory, baseDir);
+            }
+            else if (baseDir.equals(directory) && startupIgnoredDirectories.contains(file.getName())) {
+                return reportStatus(file, true, generation);
+            }
+        }
+        else {
+            snapshot = getRuleSnapshot();
+        }
+
+        if (snapshot.getTrie().isEmpty()) {
+            return reportStatus(file, false, generation);
+        }
+
+        boolean ignored = isParentExcluded(snapshot, file, baseDir)
+            || getLastMatchVerdict(snapshot, file) == Boolean.TRUE;
+
+        return reportStatus(file, ignored, generation);
+    }
+
+    /**
+     * Stores computed status of the file in {@link #statusCache} and {@link #reportedStatuses}.
+     *
+     * @param file       checked file
+     * @param ignored    file is ignored
+     * @param generation status cache generation obtained before computing the status
+     * @return file is ignored
+     */
+    private boolean reportStatus(@Nonnull VirtualFile file, boolean ignored, int generation) {
+        reportedStatuses.record(file, ignored);
+        return statusCache.set(file, ignored, generation);
+    }
+
+    /**
+     * Checks if the parent directory of the given file is excluded. Git does not re-include files from the excluded
+     * directories, so such file is ignored regardless of its own rules. Verdicts of the directories are kept in
+     * {@link #statusCache}, so whole excluded trees are answered without evaluating any rule. VCS roots and the
+     * project's base directory are never treated as the excluded parents, even if their own status is cached.
+     *
+     * @param snapshot rules state
+     * @param file     file to check
+     * @param baseDir  project's base directory
+     * @return parent directory is excluded
+     */
+    private boolean isParentExcluded(@Nonnull RuleSnapshot snapshot, @Nonnull VirtualFile file,
+                                     @Nonnull VirtualFile baseDir) {
+        VirtualFile directory = file.getParent();
+        if (directory == null || directory.equals(baseDir) || snapshot.isVcsRoot(directory)) {
+            return false;
+        }
+
+        Boolean verdict = statusCache.get(directory);
+        if (verdict != null) {
+            return verdict;
+        }
+
+        return isFileIgnored(directory);
+    }
+
+    /**
+     * Evaluates rules of the ignore files that cover given file. Ignore files are walked from the deepest one and their
+     * rules in the reverse order, so the first matching rule - the last one in Git's order - decides about the result.
+     *
+     * @param snapshot rules state
+     * @param file     file to check
+     * @return <code>true</code> if file is excluded, <code>false</code> if it is re-included or <code>null</code> if
+     * no rule matches it
+     */
+    @Nullable
+    private Boolean getLastMatchVerdict(@Nonnull RuleSnapshot snapshot, @Nonnull VirtualFile file) {
+        VirtualFile vcsRoot = snapshot.getVcsRootFor(file);
+        List<IgnoreRuleTrie.Node> chain = snapshot.getTrie().getAncestorChain(file);
+        String path = file.getPath();
+        boolean directory = file.isDirectory();
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+
+        for (int i = chain.size() - 1; i >= 0; i--) {
             ProgressManager.checkCanceled();
-            if (!IgnoreBundle.ENABLED_LANGUAGES.get(fileType)) {
+            IgnoreRuleTrie.Node node = chain.get(i);
+            int start = node.getDirectory().getPath().length();
+            if (start < end && path.charAt(start) == '/') {
+                start++;
+            }
+            if (start >= end) {
                 continue;
             }
 
-            Collection<IgnoreEntryOccurrence> values = cachedIgnoreFilesIndex.get(fileType);
-
-            valuesCount += values.size();
-            for (IgnoreEntryOccurrence value : values) {
+            boolean underVcsRoot = vcsRoot == null || Utils.isUnder(node.getDirectory(), vcsRoot);
+            List<IgnoreRuleTrie.Source> sources = node.getSources();
+            for (int j = sources.size() - 1; j >= 0; j--) {
                 ProgressManager.checkCanceled();
-                String relativePath;
-                VirtualFile entryFile = value.getFile();
-                if (entryFile == null) {
+                IgnoreRuleTrie.Source source = sources.get(j);
+                if (!underVcsRoot && source.getKind() == IgnoreRuleTrie.Kind.LOCAL) {
                     continue;
                 }
-                else if (fileType instanceof GitExcludeFileType) {
-                    VirtualFile workingDirectory = GitExcludeFileType.getWorkingDirectory(myProject, entryFile);
-                    if (workingDirectory == null || !Utils.isUnder(file, workingDirectory)) {
-                        continue;
-                    }
-                    relativePath = StringUtil.trimStart(file.getPath(), workingDirectory.getPath());
-                }
-                else {
-                    VirtualFile vcsRoot = getVcsRootFor(file);
-                    if (vcsRoot != null && !Utils.isUnder(entryFile, vcsRoot)) {
-                        if (!cachedOuterFiles.get(fileType).contains(entryFile)) {
-                            continue;
-                        }
-                    }
 
-                    String parentPath = !Utils.isInProject(entryFile, myProject) && myProject.getBasePath() != null
-                        ? myProject.getBasePath()
-                        : entryFile.getParent().getPath();
-                    if (!StringUtil.startsWith(file.getPath(), parentPath)
-                        && !ExternalIndexableSetContributor.getAdditionalFiles(myProject).contains(entryFile)) {
-                        continue;
-                    }
-                    relativePath = StringUtil.trimStart(file.getPath(), parentPath);
+                IgnoreRuleSet ruleSet = source.getOccurrence().getRuleSet();
+                int index = ruleSet.lastMatch(matcher, path, start, end, directory);
+                if (index >= 0) {
+                    return !ruleSet.getRules().get(index).isNegated();
                 }
+            }
+        }
 
-                relativePath = StringUtil.trimEnd(StringUtil.trimStart(relativePath, "/"), "/");
-                if (StringUtil.isEmpty(relativePath)) {
-                    continue;
-                }
+        return null;
+    }
 
-                if (file.isDirectory()) {
-                    relativePath += "/";
-                }
+    /** Outdates current {@link #ruleSnapshot} and drops the statuses computed with it. */
+    private void invalidateRules() {
+        rebuildRules.set(true);
+        rulesVersion.incrementAndGet();
+        statusCache.invalidateAll();
+    }
 
-                for (Pair<String, Boolean> item : value.getItems()) {
-                    Pattern pattern = Glob.getPattern(item.first);
-                    if (matcher.match(pattern, relativePath)) {
-                        ignored = !item.second;
-                        matched = true;
-                    }
-                }
+    /**
+     * Outdates current {@link #ruleSnapshot}, so it is updated with the ignore files collected in
+     * {@link #changedIgnoreFiles}, and drops the statuses of the given directories' subtrees only.
+     *
+     * @param directories directories the rules of the changed ignore files are relative to
+     */
+    private void invalidateRules(@Nonnull Collection<VirtualFile> directories) {
+        rulesVersion.incrementAndGet();
+        for (VirtualFile directory : directories) {
+            statusCache.invalidateUnder(directory);
+        }
+    }
+
+    /**
+     * Refreshes statuses of the files. Statuses reported to the views are computed again in the non-blocking read
+     * action, which is restarted instead of delaying the write actions, and only the changed ones are passed to
+     * {@link FileStatusManager#fileStatusChanged(VirtualFile)}. All statuses are refreshed with
+     * {@link FileStatusManager#fileStatusesChanged()} if too many of them changed or if it was requested.
+     *
+     * @param all refresh all statuses
+     */
+    private void statusesChanged(@Nullable Boolean all) {
+        if (myProject.isDisposed()) {
+            return;
+        }
+
+        List<VirtualFile> changed = null;
+        if (!Boolean.TRUE.equals(all)) {
+            changed = ReadAction.nonBlocking(() -> reportedStatuses.computeChanges(this::isFileIgnored))
+                .expireWith(this)
+                .executeSynchronously();
+        }
+
+        if (changed == null) {
+            reportedStatuses.reset();
+            statusManager.fileStatusesChanged();
+            return;
+        }
+        for (VirtualFile file : changed) {
+            statusManager.fileStatusChanged(file);
+        }
+    }
+
+    /**
+     * Rebuilds tracked and ignored files.
+     *
+     * @param silent do not notify {@link TrackedIgnoredListener}
+     */
+    private void trackedIgnored(@Nullable Boolean silent) {
+        if (!myProject.isDisposed()) {
+            refreshTrackedIgnoredRunnable.run(Boolean.TRUE.equals(silent));
+        }
+    }
+
+    /** {@link DumbModeListener#exitDumbMode()} method body - rebuilds the rules with the indexes. */
+    private void exitDumbMode() {
+        if (myProject.isDisposed()) {
+            return;
+        }
+
+        cachedIgnoreFilesIndex.clear();
+        dumbRuleSnapshots.clear();
+        invalidateRules();
+        for (Map.Entry<String, IgnoreFileType> entry : FILE_TYPES_ASSOCIATION_QUEUE.entrySet()) {
+            associateFileType(entry.getKey(), entry.getValue());
+        }
+        refreshStatuses();
+        saveStartupSnapshot();
+    }
+
+    /** Requests refresh of the statuses that changed since they were reported. */
+    private void refreshStatuses() {
+        SCHEDULER.schedule(statusesChangedTask, false);
+    }
+
+    /**
+     * Requests rebuilding of the tracked and ignored files.
+     *
+     * @param silent do not notify {@link TrackedIgnoredListener}
+     */
+    private void refreshTrackedIgnored(boolean silent) {
+        SCHEDULER.schedule(refreshTrackedIgnoredTask, silent);
+    }
+
+    /**
+     * Returns {@link RuleSnapshot} of the current rules state. Outdated snapshot is updated with the changed ignore
+     * files only, or rebuilt if any other change happened since it was built, and published atomically. Only one thread
+     * updates the snapshot at once - the others wait for it, checking for the cancellation.
+     *
+     * @return rules snapshot
+     */
+    @Nonnull
+    private RuleSnapshot getRuleSnapshot() {
+        RuleSnapshot current = ruleSnapshot.get();
+        long version = rulesVersion.get();
+        if (current.getVersion() == version) {
+            return current;
+        }
+
+        try {
+            while (!ruleSnapshotLock.tryLock(10, TimeUnit.MILLISECONDS)) {
+                ProgressManager.checkCanceled();
             }
         }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return buildRuleSnapshot(version);
+        }
 
-        if (valuesCount > 0 && !ignored && !matched) {
-            VirtualFile directory = file.getParent();
-            if (directory != null && !directory.equals(baseDir)) {
-                for (VcsRoot vcsRoot : vcsRoots) {
-                    ProgressManager.checkCanceled();
-                    if (directory.equals(vcsRoot.getPath())) {
-                        return expiringStatusCache.set(file, false);
-                    }
-                }
-                return expiringStatusCache.set(file, isFileIgnored(directory));
+        try {
+            current = ruleSnapshot.get();
+            version = rulesVersion.get();
+            if (current.getVersion() == version) {
+                return current;
+            }
+
+            boolean rebuild = rebuildRules.getAndSet(false);
+            try {
+                RuleSnapshot snapshot = rebuild ? buildRuleSnapshot(version) : updateRuleSnapshot(current, version);
+                ruleSnapshot.set(snapshot);
+                return snapshot;
+            }
+            catch (RuntimeException | Error e) {
+                rebuildRules.compareAndSet(false, rebuild);
+                throw e;
             }
         }
+        finally {
+            ruleSnapshotLock.unlock();
+        }
+    }
 
-        if (ignored) {
-            refreshTrackedIgnoredFeature.cancel();
+    /**
+     * Builds {@link RuleSnapshot} - collects enabled languages with their outer files and VCS roots, and attaches every
+     * indexed ignore file to the directory its rules are relative to. Exclude files are attached to their working
+     * directories and files located outside of the project to the project's base directory.
+     *
+     * @param version rules state version
+     * @return rules snapshot
+     */
+    @Nonnull
+    private RuleSnapshot buildRuleSnapshot(long version) {
+        VirtualFile baseDir = myProject.getBaseDir();
+        IgnoreRuleTrie.Builder builder = IgnoreRuleTrie.builder();
+        List<IgnoreFileType> enabledTypes = new ArrayList<>();
+        Map<IgnoreFileType, Collection<VirtualFile>> outerFiles = new HashMap<>();
+
+        for (int i = 0; i < FILE_TYPES.size(); i++) {
+            ProgressManager.checkCanceled();
+            IgnoreFileType fileType = FILE_TYPES.get(i);
+            if (!IgnoreBundle.ENABLED_LANGUAGES.get(fileType)) {
+                continue;
+            }
+            enabledTypes.add(fileType);
+            outerFiles.put(fileType, cachedOuterFiles.get(fileType));
+
+            for (IgnoreEntryOccurrence value : getIgnoreFileEntries(fileType)) {
+                attachIgnoreFile(builder, value, fileType, i, outerFiles.get(fileType), baseDir);
+            }
         }
 
-        return expiringStatusCache.set(file, ignored);
+        return new RuleSnapshot(
+            version,
+            builder.build(),
+            enabledTypes,
+            outerFiles,
+            Arrays.asList(projectLevelVcsManager.getAllVcsRoots())
+        );
     }
 
     /**
-     * Finds {@link VirtualFile} directory of {@link VcsRoot} that contains passed file.
+     * Updates given {@link RuleSnapshot} with the ignore files collected in {@link #changedIgnoreFiles}. Changed files
+     * are detached from the rule trie and attached again with their refreshed entries, so the other ignore files are
+     * neither collected nor compiled again. Changes are dropped from {@link #changedIgnoreFiles} only when the whole
+     * update succeeds, so a canceled update is repeated.
      *
-     * @param file to check
-     * @return VCS Root for given file
+     * @param snapshot current snapshot
+     * @param version  rules state version
+     * @return updated snapshot
+     */
+    @Nonnull
+    private RuleSnapshot updateRuleSnapshot(@Nonnull RuleSnapshot snapshot, long version) {
+        VirtualFile baseDir = myProject.getBaseDir();
+        IgnoreRuleTrie.Builder builder = null;
+        Map<IgnoreFileType, Map<String, VirtualFile>> applied = new HashMap<>();
+
+        for (int i = 0; i < FILE_TYPES.size(); i++) {
+            ProgressManager.checkCanceled();
+            IgnoreFileType fileType = FILE_TYPES.get(i);
+            Map<String, VirtualFile> pending = changedIgnoreFiles.get(fileType);
+            if (!snapshot.isEnabled(fileType) || pending == null || pending.isEmpty()) {
+                continue;
+            }
+
+            Map<String, VirtualFile> changes = new HashMap<>(pending);
+            applied.put(fileType, changes);
+
+            if (builder == null) {
+                builder = snapshot.getTrie().toBuilder();
+            }
+            for (String url : changes.keySet()) {
+                builder.remove(url);
+            }
+            for (IgnoreEntryOccurrence value : applyChangedIgnoreFiles(fileType, changes)) {
+                attachIgnoreFile(builder, value, fileType, i, snapshot.getOuterFiles(fileType), baseDir);
+            }
+        }
+
+        RuleSnapshot updated = snapshot.withTrie(version, builder != null ? builder.build() : snapshot.getTrie());
+        for (Map.Entry<IgnoreFileType, Map<String, VirtualFile>> entry : applied.entrySet()) {
+            Map<String, VirtualFile> pending = changedIgnoreFiles.get(entry.getKey());
+            if (pending != null) {
+                entry.getValue().forEach(pending::remove);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Attaches entries of the indexed ignore file to the directory its rules are relative to.
+     *
+     * @param builder    trie builder
+     * @param value      indexed entries
+     * @param fileType   ignore file type
+     * @param typeOrder  position of the file type on the languages list
+     * @param outerFiles outer files of the file type
+     * @param baseDir    project's base directory
+     */
+    private void attachIgnoreFile(@Nonnull IgnoreRuleTrie.Builder builder, @Nonnull IgnoreEntryOccurrence value,
+                                  @Nonnull IgnoreFileType fileType, int typeOrder,
+                                  @Nonnull Collection<VirtualFile> outerFiles, @Nullable VirtualFile baseDir) {
+        VirtualFile entryFile = value.getFile(fileUrlCache);
+        if (entryFile == null) {
+            return;
+        }
+
+        VirtualFile directory = getRulesDirectory(entryFile, fileType, baseDir);
+        if (directory == null) {
+            return;
+        }
+
+        IgnoreRuleTrie.Kind kind = fileType instanceof GitExcludeFileType
+            ? IgnoreRuleTrie.Kind.EXCLUDE
+            : outerFiles.contains(entryFile) ? IgnoreRuleTrie.Kind.OUTER : IgnoreRuleTrie.Kind.LOCAL;
+        builder.add(directory, value, fileType, kind, typeOrder);
+    }
+
+    /**
+     * Returns directory the rules of the given ignore file are relative to. Exclude files are relative to their working
+     * directories and files located outside of the project to the project's base directory.
+     *
+     * @param file     ignore file
+     * @param fileType ignore file type
+     * @param baseDir  project's base directory
+     * @return rules directory or <code>null</code> if it cannot be determined
      */
     @Nullable
-    private VirtualFile getVcsRootFor(@Nonnull VirtualFile file) {
-        VcsRoot vcsRoot = ContainerUtil.find(
-            ContainerUtil.reverse(vcsRoots),
-            root -> root.getPath() != null && Utils.isUnder(file, root.getPath())
+    private VirtualFile getRulesDirectory(@Nonnull VirtualFile file, @Nonnull IgnoreFileType fileType,
+                                          @Nullable VirtualFile baseDir) {
+        if (fileType instanceof GitExcludeFileType) {
+            return baseDir != null ? GitExcludeFileType.getWorkingDirectory(myProject, file) : null;
+        }
+        return !Utils.isInProject(file, myProject) && baseDir != null ? baseDir : file.getParent();
+    }
+
+    /**
+     * Returns location of the {@link StartupSnapshot} of the current project.
+     *
+     * @return snapshot file path
+     */
+    @Nonnull
+    private Path getStartupSnapshotPath() {
+        return Path.of(ContainerPathManager.get().getSystemPath(), "dotignore", myProject.getLocationHash() + ".dat");
+    }
+
+    /**
+     * Loads {@link StartupSnapshot} stored in the previous session. If it is still up to date with the ignore files,
+     * its rules answer {@link #isFileIgnored(VirtualFile)} until the indexes are ready - except for the directories
+     * with ignore files created since it was stored, which use {@link #getDumbRuleSnapshot(VirtualFile, VirtualFile)}.
+     */
+    private void loadStartupSnapshot() {
+        StartupSnapshot snapshot = StartupSnapshot.load(getStartupSnapshotPath());
+        if (snapshot == null) {
+            return;
+        }
+
+        startupSnapshot = snapshot;
+        RuleSnapshot rules = snapshot.restore(Arrays.asList(projectLevelVcsManager.getAllVcsRoots()));
+        if (rules != null && DumbService.isDumb(myProject)) {
+            startupCoveredDirectories.clear();
+            startupIgnoredDirectories = snapshot.getIgnoredDirectories();
+            startupRules = rules;
+            statusCache.invalidateAll();
+            refreshStatuses();
+        }
+    }
+
+    /**
+     * Reconciles rules restored from the {@link StartupSnapshot} with the indexed ones: drops the restored rules and
+     * stores the current state for the next session. State is collected in the non-blocking read action, so it does
+     * not delay the write actions.
+     */
+    private void saveStartupSnapshot() {
+        VirtualFile baseDir = myProject.getBaseDir();
+        if (baseDir == null || myProject.isDisposed() || DumbService.isDumb(myProject)) {
+            return;
+        }
+
+        startupRules = null;
+        startupIgnoredDirectories = Set.of();
+        startupCoveredDirectories.clear();
+        StartupSnapshot snapshot = ReadAction.nonBlocking(() -> {
+            RuleSnapshot rules = getRuleSnapshot();
+            List<String> ignoredDirectories = new ArrayList<>();
+            for (VirtualFile child : baseDir.getChildren()) {
+                if (child.isDirectory() && isFileIgnored(child)) {
+                    ignoredDirectories.add(child.getName());
+                }
+            }
+            return StartupSnapshot.create(rules, ignoredDirectories, startupSnapshot, fileUrlCache);
+        }).expireWith(this).executeSynchronously();
+
+        try {
+            snapshot.save(getStartupSnapshotPath());
+            startupSnapshot = snapshot;
+        }
+        catch (IOException e) {
+            LOG.warn("Cannot save startup snapshot: " + getStartupSnapshotPath(), e);
+        }
+    }
+
+    /**
+     * Checks if the rules restored from the {@link StartupSnapshot} cover the children of the given directory. Ignore
+     * files created since the snapshot was stored, i.e. by a pull made while the IDE was closed, are not known to it,
+     * so the directory and its ancestors up to the project's base directory are checked for the ignore files with
+     * rules that are missing in the snapshot. Results are kept in {@link #startupCoveredDirectories}.
+     *
+     * @param rules     rules restored from the snapshot
+     * @param directory directory which children are checked
+     * @param baseDir   project's base directory
+     * @return snapshot knows all ignore files applied to the directory's children
+     */
+    private boolean isCoveredByStartupRules(@Nonnull RuleSnapshot rules, @Nonnull VirtualFile directory,
+                                            @Nonnull VirtualFile baseDir) {
+        Boolean covered = startupCoveredDirectories.get(directory);
+        if (covered != null) {
+            return covered;
+        }
+        if (!Utils.isUnder(directory, baseDir)) {
+            return true;
+        }
+
+        covered = (directory.equals(baseDir) || isCoveredByStartupRules(rules, directory.getParent(), baseDir))
+            && !hasUnknownIgnoreFiles(rules, directory, baseDir);
+        startupCoveredDirectories.put(directory, covered);
+        return covered;
+    }
+
+    /**
+     * Checks if the given directory contains ignore files with rules that are not attached to its node in the restored
+     * rules. Exclude file is checked for the project's base directory only.
+     *
+     * @param rules     rules restored from the snapshot
+     * @param directory directory to check
+     * @param baseDir   project's base directory
+     * @return directory contains unknown ignore files
+     */
+    private boolean hasUnknownIgnoreFiles(@Nonnull RuleSnapshot rules, @Nonnull VirtualFile directory,
+                                          @Nonnull VirtualFile baseDir) {
+        IgnoreRuleTrie.Node node = rules.getTrie().getNode(directory);
+        for (IgnoreFileType fileType : FILE_TYPES) {
+            ProgressManager.checkCanceled();
+            if (!IgnoreBundle.ENABLED_LANGUAGES.get(fileType)) {
+                continue;
+            }
+
+            VirtualFile file;
+            if (fileType instanceof GitExcludeFileType) {
+                file = directory.equals(baseDir) ? baseDir.findFileByRelativePath(".git/info/exclude") : null;
+            }
+            else {
+                file = directory.findChild(fileType.getIgnoreLanguage().getFilename());
+            }
+            if (file == null || file.isDirectory() || isAttached(node, file)) {
+                continue;
+            }
+
+            IgnoreEntryOccurrence occurrence = filesLoader.load(file, fileType);
+            if (occurrence != null && !occurrence.getItems().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the given ignore file is attached to the trie node.
+     *
+     * @param node trie node or <code>null</code>
+     * @param file ignore file
+     * @return file is attached to the node
+     */
+    private static boolean isAttached(@Nullable IgnoreRuleTrie.Node node, @Nonnull VirtualFile file) {
+        if (node == null) {
+            return false;
+        }
+
+        String url = file.getUrl();
+        for (IgnoreRuleTrie.Source source : node.getSources()) {
+            if (url.equals(source.getOccurrence().getUrl())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@link RuleSnapshot} for the children of the given directory built without the indexes, so it can be
+     * used in dumb mode. Snapshot of the directory extends the one of its parent with the ignore files looked up with
+     * {@link VirtualFile#findChild(String)} in the directory and parsed with {@link #filesLoader}, so every directory
+     * is visited once per {@link #rulesVersion}. Exclude file is looked up in the base directory's <code>.git</code>
+     * directory and outer files, resolved without the indexes, are attached to the base directory.
+     *
+     * @param directory directory which children are checked
+     * @param baseDir   project's base directory
+     * @return rules state covering the directory's children
+     */
+    @Nonnull
+    private RuleSnapshot getDumbRuleSnapshot(@Nonnull VirtualFile directory, @Nonnull VirtualFile baseDir) {
+        long version = rulesVersion.get();
+        RuleSnapshot snapshot = dumbRuleSnapshots.get(directory);
+        if (snapshot != null && snapshot.getVersion() == version) {
+            return snapshot;
+        }
+
+        boolean base = directory.equals(baseDir) || !Utils.isUnder(directory, baseDir);
+        RuleSnapshot parentSnapshot = base ? null : getDumbRuleSnapshot(directory.getParent(), baseDir);
+        IgnoreRuleTrie.Builder builder = parentSnapshot == null
+            ? IgnoreRuleTrie.builder()
+            : parentSnapshot.getTrie().toBuilder();
+        List<IgnoreFileType> enabledTypes = new ArrayList<>();
+
+        for (int i = 0; i < FILE_TYPES.size(); i++) {
+            ProgressManager.checkCanceled();
+            IgnoreFileType fileType = FILE_TYPES.get(i);
+            if (!IgnoreBundle.ENABLED_LANGUAGES.get(fileType)) {
+                continue;
+            }
+            enabledTypes.add(fileType);
+
+            if (fileType instanceof GitExcludeFileType) {
+                if (parentSnapshot == null) {
+                    VirtualFile exclude = baseDir.findFileByRelativePath(".git/info/exclude");
+                    addDumbSource(builder, baseDir, exclude, fileType, IgnoreRuleTrie.Kind.EXCLUDE, i);
+                }
+                continue;
+            }
+
+            if (parentSnapshot == null) {
+                for (VirtualFile outerFile : fileType.getIgnoreLanguage().getOuterFiles(myProject, true)) {
+                    addDumbSource(builder, baseDir, outerFile, fileType, IgnoreRuleTrie.Kind.OUTER, i);
+                }
+            }
+
+            if (directory.equals(baseDir) || parentSnapshot != null) {
+                VirtualFile ignoreFile = directory.findChild(fileType.getIgnoreLanguage().getFilename());
+                addDumbSource(builder, directory, ignoreFile, fileType, IgnoreRuleTrie.Kind.LOCAL, i);
+            }
+        }
+
+        snapshot = new RuleSnapshot(
+            version,
+            builder.build(),
+            enabledTypes,
+            Map.of(),
+            parentSnapshot == null
+                ? Arrays.asList(projectLevelVcsManager.getAllVcsRoots())
+                : parentSnapshot.getVcsRoots()
         );
-        return vcsRoot != null ? vcsRoot.getPath() : null;
+        if (dumbRuleSnapshots.size() >= MAX_DUMB_RULE_SNAPSHOTS) {
+            dumbRuleSnapshots.clear();
+        }
+        if (rulesVersion.get() == version) {
+            dumbRuleSnapshots.put(directory, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Attaches entries of the given ignore file loaded with {@link #filesLoader} to the directory.
+     *
+     * @param builder   trie builder
+     * @param directory directory the rules are relative to
+     * @param file      ignore file, may be <code>null</code> if it does not exist
+     * @param fileType  ignore file type
+     * @param kind      source kind
+     * @param typeOrder position of the file type on the languages list
+     */
+    private void addDumbSource(@Nonnull IgnoreRuleTrie.Builder builder, @Nonnull VirtualFile directory,
+                               @Nullable VirtualFile file, @Nonnull IgnoreFileType fileType,
+                               @Nonnull IgnoreRuleTrie.Kind kind, int typeOrder) {
+        if (file == null || file.isDirectory()) {
+            return;
+        }
+
+        IgnoreEntryOccurrence occurrence = filesLoader.load(file, fileType);
+        if (occurrence != null && !occurrence.getItems().isEmpty()) {
+            builder.add(directory, occurrence, fileType, kind, typeOrder);
+        }
+    }
+
+    /**
+     * Returns {@link IgnoreEntryOccurrence} of the given file type from {@link #cachedIgnoreFilesIndex}. Entries of the
+     * ignore files changed since the last fetch are replaced with the ones looked up in their directories in
+     * {@link IgnoreDirectoryIndex}, so a single changed file does not refetch all ignore files of its type.
+     *
+     * @param fileType ignore file type
+     * @return entries of the file type
+     */
+    @Nonnull
+    private Collection<IgnoreEntryOccurrence> getIgnoreFileEntries(@Nonnull IgnoreFileType fileType) {
+        Map<String, VirtualFile> changes = changedIgnoreFiles.remove(fileType);
+        if (changes != null && !changes.isEmpty()) {
+            applyChangedIgnoreFiles(fileType, changes);
+        }
+        return cachedIgnoreFilesIndex.get(fileType);
+    }
+
+    /**
+     * Looks up entries of the changed ignore files in their directories in {@link IgnoreDirectoryIndex} and replaces
+     * the previous entries of these files in {@link #cachedIgnoreFilesIndex} with them.
+     *
+     * @param fileType ignore file type
+     * @param changes  URLs of the changed files mapped with their directories
+     * @return refreshed entries, deleted files have none
+     */
+    @Nonnull
+    private List<IgnoreEntryOccurrence> applyChangedIgnoreFiles(@Nonnull IgnoreFileType fileType,
+                                                                 @Nonnull Map<String, VirtualFile> changes) {
+        List<IgnoreEntryOccurrence> refreshed = new ArrayList<>();
+        for (Map.Entry<String, VirtualFile> change : changes.entrySet()) {
+            if (change.getValue().isValid()) {
+                for (IgnoreEntryOccurrence entry : IgnoreDirectoryIndex.getEntries(myProject, change.getValue())) {
+                    if (change.getKey().equals(entry.getUrl())) {
+                        refreshed.add(entry);
+                    }
+                }
+            }
+        }
+
+        cachedIgnoreFilesIndex.update(fileType, (key, entries) -> {
+            List<IgnoreEntryOccurrence> result = new ArrayList<>(entries.size() + refreshed.size());
+            for (IgnoreEntryOccurrence entry : entries) {
+                if (!changes.containsKey(entry.getUrl())) {
+                    result.add(entry);
+                }
+            }
+            result.addAll(refreshed);
+            return result;
+        });
+        return refreshed;
     }
 
     /**
@@ -502,20 +1212,20 @@ public class IgnoreManager implements Disposable {
             return;
         }
 
-        refreshTrackedIgnoredFeature.run();
-        virtualFileManager.addVirtualFileListener(virtualFileListener);
+        SCHEDULER.schedule(refreshTrackedIgnoredTask, false, 10000);
+        Application.get().executeOnPooledThread(this::loadStartupSnapshot);
+        FileEventsDispatcher.getInstance().addHandler(fileEventsHandler);
         settings.addListener(settingsListener);
 
         messageBus = myProject.getMessageBus().connect();
 
-        messageBus.subscribe(TRACKED_IGNORED_REFRESH, () -> debouncedRefreshTrackedIgnores.run(true));
+        messageBus.subscribe(TRACKED_IGNORED_REFRESH, () -> refreshTrackedIgnored(true));
 
         messageBus.subscribe(
             ProjectLevelVcsManager.VCS_CONFIGURATION_CHANGED,
             () -> {
                 ExternalIndexableSetContributor.invalidateCache(myProject);
-                vcsRoots.clear();
-                vcsRoots.addAll(ContainerUtil.newArrayList(projectLevelVcsManager.getAllVcsRoots()));
+                invalidateRules();
             }
         );
 
@@ -526,7 +1236,7 @@ public class IgnoreManager implements Disposable {
 
             @Override
             public void exitDumbMode() {
-                debouncedExitDumbMode.run();
+                SCHEDULER.schedule(exitDumbModeTask, null);
             }
         });
 
@@ -534,13 +1244,14 @@ public class IgnoreManager implements Disposable {
         messageBus.subscribe(RefreshStatusesListener.class, commonRunnableListeners);
         messageBus.subscribe(ModuleListener.class, commonRunnableListeners);
 
+        SCHEDULER.schedule(statusesChangedTask, true);
         working = true;
     }
 
     /** Disable manager. */
     private void disable() {
         ExternalIndexableSetContributor.invalidateCache(myProject);
-        virtualFileManager.removeVirtualFileListener(virtualFileListener);
+        FileEventsDispatcher.getInstance().removeHandler(fileEventsHandler);
         settings.removeListener(settingsListener);
 
         if (messageBus != null) {
@@ -548,6 +1259,14 @@ public class IgnoreManager implements Disposable {
             messageBus = null;
         }
 
+        filesLoader.clear();
+        fileUrlCache.clear();
+        dumbRuleSnapshots.clear();
+        reportedStatuses.reset();
+        SCHEDULER.cancel(statusesChangedTask);
+        SCHEDULER.cancel(refreshTrackedIgnoredTask);
+        SCHEDULER.cancel(exitDumbModeTask);
+        invalidateRules();
         working = false;
     }
 
@@ -607,7 +1326,7 @@ public class IgnoreManager implements Disposable {
             }
 
             ConcurrentMap<VirtualFile, VcsRoot> result = ContainerUtil.newConcurrentMap();
-            for (VcsRoot vcsRoot : vcsRoots) {
+            for (VcsRoot vcsRoot : projectLevelVcsManager.getAllVcsRoots()) {
                 if (!(vcsRoot.getVcs() instanceof GitVcs) || vcsRoot.getPath() == null) {
                     continue;
                 }
@@ -623,14 +1342,67 @@ public class IgnoreManager implements Disposable {
             if (!silent && !result.isEmpty()) {
                 myProject.getMessageBus().syncPublisher(TrackedIgnoredListener.class).handleFiles(result);
             }
-            confirmedIgnoredFiles.clear();
-            confirmedIgnoredFiles.putAll(result);
-            notConfirmedIgnoredFiles.clear();
-            debouncedStatusesChanged.run();
 
-            for (ProjectViewPane pane : myProject.getExtensionList(ProjectViewPane.class)) {
-                pane.queueUpdate();
+            Set<VirtualFile> changed = applyChanges(result);
+            if (changed.isEmpty()) {
+                return;
+            }
+
+            boolean bulk = changed.size() > MAX_TRACKED_IGNORED_UPDATES;
+            if (bulk) {
+                statusManager.fileStatusesChanged();
+            }
+            else {
+                Set<VirtualFile> affected = new HashSet<>(changed);
+                for (VirtualFile file : changed) {
+                    VirtualFile parent = file.getParent();
+                    if (parent != null) {
+                        affected.add(parent);
+                    }
+                }
+                for (VirtualFile file : affected) {
+                    statusManager.fileStatusChanged(file);
+                }
+            }
+
+            if (bulk || settings.isHideIgnoredFiles()) {
+                for (ProjectViewPane pane : myProject.getExtensionList(ProjectViewPane.class)) {
+                    pane.queueUpdate();
+                }
+            }
+        }
+
+        /**
+         * Replaces {@link #confirmedIgnoredFiles} with the given files by adding and removing only the difference, and
+         * confirms {@link #notConfirmedIgnoredFiles}.
+         *
+         * @param result current tracked and ignored files
+         * @return files which tracked status changed
+         */
+        @Nonnull
+        private Set<VirtualFile> applyChanges(@Nonnull Map<VirtualFile, VcsRoot> result) {
+            Set<VirtualFile> changed = new HashSet<>();
+            for (VirtualFile file : confirmedIgnoredFiles.keySet()) {
+                if (!result.containsKey(file)) {
+                    confirmedIgnoredFiles.remove(file);
+                    changed.add(file);
+                }
+            }
+            for (Map.Entry<VirtualFile, VcsRoot> entry : result.entrySet()) {
+                if (confirmedIgnoredFiles.put(entry.getKey(), entry.getValue()) == null) {
+                    changed.add(entry.getKey());
+                }
+            }
+
+            Iterator<VirtualFile> iterator = notConfirmedIgnoredFiles.iterator();
+            while (iterator.hasNext()) {
+                VirtualFile file = iterator.next();
+                iterator.remove();
+                if (result.containsKey(file)) {
+                    changed.add(file);
+                }
             }
+            return changed;
         }
     }
 }
@@ -40,9 +40,8 @@ import consulo.project.Project;
 import consulo.util.collection.ContainerUtil;
 import consulo.util.lang.Couple;
 import consulo.virtualFileSystem.VirtualFile;
-import consulo.virtualFileSystem.VirtualFileManager;
-import consulo.virtualFileSystem.event.*;
 import jakarta.annotation.Nonnull;
+import mobi.hsz.idea.gitignore.FileEventsDispatcher;
 import mobi.hsz.idea.gitignore.IgnoreManager;
 import mobi.hsz.idea.gitignore.psi.IgnoreEntry;
 import mobi.hsz.idea.gitignore.psi.IgnoreFile;
@@ -53,6 +52,7 @@ import mobi.hsz.idea.gitignore.util.Utils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Inspection tool that checks if entries are covered by others.
@@ -62,42 +62,19 @@ import java.util.concurrent.ConcurrentMap;
  */
 @ExtensionImpl
 public class IgnoreCoverEntryInspection extends IgnoreInspection {
-    /** Cache map to store handled entries' paths. */
-    private final ConcurrentMap<String, Set<String>> cacheMap;
+    /** Cache map to store handled entries' paths, shared by all inspection instances. */
+    private static final ConcurrentMap<String, Set<String>> CACHE_MAP = ContainerUtil.newConcurrentMap();
 
-    /** {@link VirtualFileManager} instance. */
-    private final VirtualFileManager virtualFileManager;
-
-    /** Watches for the changes in the files tree and triggers the cache clear. */
-    private final VirtualFileListener virtualFileListener = new VirtualFileListener() {
-        @Override
-        public void propertyChanged(@Nonnull VirtualFilePropertyEvent event) {
-            if (event.getPropertyName().equals("name")) {
-                cacheMap.clear();
-            }
-        }
-
-        @Override
-        public void fileCreated(@Nonnull VirtualFileEvent event) {
-            cacheMap.clear();
-        }
-
-        @Override
-        public void fileDeleted(@Nonnull VirtualFileEvent event) {
-            cacheMap.clear();
-        }
-
-        @Override
-        public void fileMoved(@Nonnull VirtualFileMoveEvent event) {
-            cacheMap.clear();
-        }
-
-        @Override
-        public void fileCopied(@Nonnull VirtualFileCopyEvent event) {
-            cacheMap.clear();
+    /** Watches for the changes in the files tree and triggers the cache clear once per events batch. */
+    private static final FileEventsDispatcher.Handler FILE_EVENTS_HANDLER = batch -> {
+        if (!batch.getStructureChanges().isEmpty()) {
+            CACHE_MAP.clear();
         }
     };
 
+    /** {@link #FILE_EVENTS_HANDLER} was registered in {@link FileEventsDispatcher}. */
+    private static final AtomicBoolean HANDLER_REGISTERED = new AtomicBoolean();
+
     @Nonnull
     @Override
     public LocalizeValue getDisplayName() {
@@ -112,23 +89,23 @@ public class IgnoreCoverEntryInspection extends IgnoreInspection {
 
     /**
      * Builds a new instance of {@link IgnoreCoverEntryInspection}.
-     * Initializes {@link VirtualFileManager} and listens for the changes in the files tree.
+     * Inspection is instantiated per profile, so the shared handler listening for the changes in the files tree with
+     * {@link FileEventsDispatcher} is registered only by the first instance.
      */
     public IgnoreCoverEntryInspection() {
-        cacheMap = ContainerUtil.newConcurrentMap();
-        virtualFileManager = VirtualFileManager.getInstance();
-        virtualFileManager.addVirtualFileListener(virtualFileListener);
+        if (HANDLER_REGISTERED.compareAndSet(false, true)) {
+            FileEventsDispatcher.getInstance().addHandler(FILE_EVENTS_HANDLER);
+        }
     }
 
     /**
-     * Unregisters {@link #virtualFileListener} and clears the paths cache.
+     * Clears the paths cache. Handler stays registered, because it is shared by all inspection instances.
      *
      * @param project current project
      */
     @Override
     public void cleanup(@Nonnull Project project) {
-        virtualFileManager.removeVirtualFileListener(virtualFileListener);
-        cacheMap.clear();
+        CACHE_MAP.clear();
     }
 
     @Nonnull
@@ -237,7 +214,7 @@ public class IgnoreCoverEntryInspection extends IgnoreInspection {
 
     /**
      * Returns the paths list for the given {@link IgnoreEntry} array in {@link VirtualFile} context.
-     * Stores fetched data in {@link #cacheMap} to limit the queries to the files tree.
+     * Stores fetched data in {@link #CACHE_MAP} to limit the queries to the files tree.
      *
      * @param contextDirectory current context
      * @param entries          to check
@@ -256,17 +233,17 @@ public class IgnoreCoverEntryInspection extends IgnoreInspection {
         for (IgnoreEntry entry : entries) {
             ProgressManager.checkCanceled();
             String key = contextDirectory.getPath() + Constants.DOLLAR + entry.getText();
-            if (!cacheMap.containsKey(key)) {
+            if (!CACHE_MAP.containsKey(key)) {
                 notCached.add(entry);
             }
-            result.put(entry, cacheMap.get(key));
+            result.put(entry, CACHE_MAP.get(key));
         }
 
         Map<IgnoreEntry, Set<String>> found = Glob.findAsPaths(contextDirectory, notCached, matcher, true);
         for (Map.Entry<IgnoreEntry, Set<String>> item : found.entrySet()) {
             ProgressManager.checkCanceled();
             String key = contextDirectory.getPath() + Constants.DOLLAR + item.getKey().getText();
-            cacheMap.put(key, item.getValue());
+            CACHE_MAP.put(key, item.getValue());
             result.put(item.getKey(), item.getValue());
         }
 
@@ -51,41 +51,68 @@ public class ExternalIndexableSetContributor extends IndexableSetContributor {
     /** Empty set. */
     private static final Set<VirtualFile> EMPTY_SET = Collections.emptySet();
 
-    /** Cached additional paths set. */
-    private static final Map<Project, HashSet<VirtualFile>> CACHE = ContainerUtil.newConcurrentMap();
+    /** Cached immutable additional paths sets. */
+    private static final Map<Project, Set<VirtualFile>> CACHE = ContainerUtil.newConcurrentMap();
 
     /**
-     * Returns additional files located outside of the current project that should be indexed.
+     * Returns additional files located outside of the current project that should be indexed. The set is immutable
+     * and cached until {@link #invalidateCache(Project)} is called or any of its files becomes invalid.
      *
      * @param project current project
      * @return additional files
      */
     @Nonnull
-    public static HashSet<VirtualFile> getAdditionalFiles(@Nonnull Project project) {
-        HashSet<VirtualFile> files = new HashSet<>();
+    public static Set<VirtualFile> getAdditionalFiles(@Nonnull Project project) {
+        Set<VirtualFile> cached = CACHE.get(project);
+        if (cached != null) {
+            if (cached.stream().allMatch(VirtualFile::isValid)) {
+                return cached;
+            }
 
-        if (CACHE.containsKey(project)) {
-            files.addAll(ContainerUtil.filter(CACHE.get(project), VirtualFile::isValid));
-        } else {
-            for (IgnoreLanguage language : IgnoreBundle.LANGUAGES) {
-                IgnoreFileType fileType = language.getFileType();
-                if (language.isOuterFileSupported()) {
-                    for (VirtualFile file : language.getOuterFiles(project, true)) {
-                        if (file == null || !file.isValid()) {
-                            continue;
-                        }
-                        if (!(file.getFileType() instanceof IgnoreFileType) && !file.getFileType().equals(fileType)) {
-                            IgnoreManager.associateFileType(file.getName(), fileType);
-                        }
+            Set<VirtualFile> files = Set.copyOf(ContainerUtil.filter(cached, VirtualFile::isValid));
+            CACHE.put(project, files);
+            IgnoreSearchScope.invalidateCache(project);
+            return files;
+        }
 
-                        files.add(file);
+        Set<VirtualFile> files = new HashSet<>();
+        for (IgnoreLanguage language : IgnoreBundle.LANGUAGES) {
+            IgnoreFileType fileType = language.getFileType();
+            if (language.isOuterFileSupported()) {
+                for (VirtualFile file : language.getOuterFiles(project, true)) {
+                    if (file == null || !file.isValid()) {
+                        continue;
+                    }
+                    if (!(file.getFileType() instanceof IgnoreFileType) && !file.getFileType().equals(fileType)) {
+                        IgnoreManager.associateFileType(file.getName(), fileType);
                     }
+
+                    files.add(file);
                 }
             }
         }
 
-        CACHE.put(project, files);
-        return files;
+        Set<VirtualFile> result = Set.copyOf(files);
+        CACHE.put(project, result);
+        return result;
+    }
+
+    /**
+     * Checks if any of the already collected additional files of the opened projects has the given name. Additional
+     * files are not collected by this method.
+     *
+     * @param name file name
+     * @return name belongs to an additional file
+     */
+    public static boolean isAdditionalFileName(@Nonnull String name) {
+        for (Set<VirtualFile> files : CACHE.values()) {
+            for (VirtualFile file : files) {
+                if (name.equals(file.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -117,14 +144,16 @@ public class ExternalIndexableSetContributor extends IndexableSetContributor {
                 CACHE.remove(project);
             }
         }
+        IgnoreSearchScope.invalidateDisposedProjects();
     }
 
     /**
-     * Removes cached files for the given project.
+     * Removes cached files and the {@link IgnoreSearchScope} for the given project.
      *
      * @param project current project
      */
     public static void invalidateCache(@Nonnull Project project) {
         CACHE.remove(project);
+        IgnoreSearchScope.invalidateCache(project);
     }
 }
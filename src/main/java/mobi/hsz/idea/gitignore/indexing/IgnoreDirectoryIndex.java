@@ -0,0 +1,189 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.indexing;
+
+import consulo.annotation.component.ExtensionImpl;
+import consulo.application.Application;
+import consulo.index.io.ID;
+import consulo.index.io.data.DataExternalizer;
+import consulo.language.psi.scope.GlobalSearchScope;
+import consulo.language.psi.stub.FileBasedIndex;
+import consulo.language.psi.stub.FileContent;
+import consulo.project.Project;
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link AbstractIgnoreFilesIndex} that maps ignore files with the path of their containing
+ * directory. It allows to fetch only the ignore files located on the ancestor chain of the file, so the lookup scales
+ * with the path depth instead of the amount of the ignore files in the project.
+ *
+ * @since 3.2
+ */
+@ExtensionImpl
+public class IgnoreDirectoryIndex extends AbstractIgnoreFilesIndex<String, IgnoreEntryOccurrence> {
+    /** Indexer ID. */
+    public static final ID<String, IgnoreEntryOccurrence> KEY = ID.create("IgnoreDirectoryIndex");
+
+    /**
+     * Current indexer version. Has to be increased if significant changes have been done. Values share the format with
+     * {@link IgnoreFilesIndex}, so its version is included too.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Returns indexer's name.
+     *
+     * @return {@link #KEY}
+     */
+    @Nonnull
+    @Override
+    public ID<String, IgnoreEntryOccurrence> getName() {
+        return KEY;
+    }
+
+    /**
+     * Maps indexed files content to the {@link IgnoreEntryOccurrence} keyed with the containing directory path.
+     *
+     * @param inputData indexed file data
+     * @return {@link IgnoreEntryOccurrence} data mapped with the directory path
+     */
+    @Nonnull
+    @Override
+    public Map<String, IgnoreEntryOccurrence> map(@Nonnull FileContent inputData) {
+        VirtualFile directory = inputData.getFile().getParent();
+        IgnoreEntryOccurrence occurrence = directory != null ? IgnoreFilesIndex.createOccurrence(inputData) : null;
+        if (occurrence == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.singletonMap(directory.getPath(), occurrence);
+    }
+
+    /**
+     * Saves directory path to the indexing output stream.
+     *
+     * @param out   output stream
+     * @param value directory path
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void save(@Nonnull DataOutput out, String value) throws IOException {
+        out.writeUTF(value);
+    }
+
+    /**
+     * Reads directory path from the input stream.
+     *
+     * @param in input stream
+     * @return directory path
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public String read(@Nonnull DataInput in) throws IOException {
+        return in.readUTF();
+    }
+
+    /**
+     * Returns {@link DataExternalizer} instance shared with {@link IgnoreFilesIndex}.
+     *
+     * @return data externalizer
+     */
+    @Nonnull
+    @Override
+    public DataExternalizer<IgnoreEntryOccurrence> getValueExternalizer() {
+        return IgnoreFilesIndex.DATA_EXTERNALIZER;
+    }
+
+    /**
+     * Returns current indexer version combined with the {@link IgnoreFilesIndex} one.
+     *
+     * @return current version
+     */
+    @Override
+    public int getVersion() {
+        return VERSION + IgnoreFilesIndex.VERSION;
+    }
+
+    /**
+     * Obtains if given {@link VirtualFile} is accepted by indexer.
+     *
+     * @param file to check
+     * @return file is accepted
+     */
+    @Override
+    public boolean acceptInput(Project project, @Nonnull VirtualFile file) {
+        return IgnoreFilesIndex.isIgnoreFile(file);
+    }
+
+    /**
+     * Returns {@link IgnoreEntryOccurrence} of the ignore files located directly in the given directory.
+     *
+     * @param project   current project
+     * @param directory directory to check
+     * @return {@link IgnoreEntryOccurrence} collection
+     */
+    @Nonnull
+    public static List<IgnoreEntryOccurrence> getEntries(@Nonnull Project project, @Nonnull VirtualFile directory) {
+        try {
+            if (Application.get().isReadAccessAllowed()) {
+                GlobalSearchScope scope = IgnoreSearchScope.get(project);
+                return FileBasedIndex.getInstance().getValues(KEY, directory.getPath(), scope);
+            }
+        }
+        catch (RuntimeException ignored) {
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns {@link IgnoreEntryOccurrence} of the ignore files located in the directories containing given file,
+     * ordered from the outermost directory.
+     *
+     * @param project current project
+     * @param file    file to check
+     * @return {@link IgnoreEntryOccurrence} collection
+     */
+    @Nonnull
+    public static List<IgnoreEntryOccurrence> getAncestorEntries(@Nonnull Project project, @Nonnull VirtualFile file) {
+        List<VirtualFile> directories = new ArrayList<>();
+        for (VirtualFile directory = file.getParent(); directory != null; directory = directory.getParent()) {
+            directories.add(directory);
+        }
+
+        List<IgnoreEntryOccurrence> result = new ArrayList<>();
+        for (int i = directories.size() - 1; i >= 0; i--) {
+            result.addAll(getEntries(project, directories.get(i)));
+        }
+        return result;
+    }
+}
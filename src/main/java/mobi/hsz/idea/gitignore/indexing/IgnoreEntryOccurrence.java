@@ -24,12 +24,15 @@
 
 package mobi.hsz.idea.gitignore.indexing;
 
-import consulo.util.lang.Pair;
-import consulo.util.lang.StringUtil;
 import consulo.virtualFileSystem.VirtualFile;
 import consulo.virtualFileSystem.VirtualFileManager;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.rules.IgnoreRule;
+import mobi.hsz.idea.gitignore.rules.IgnoreRuleSet;
+import mobi.hsz.idea.gitignore.rules.RuleSetCache;
+import mobi.hsz.idea.gitignore.util.FileUrlCache;
+import mobi.hsz.idea.gitignore.util.VarInt;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.io.DataInput;
@@ -37,7 +40,9 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Entry containing information about the {@link VirtualFile} instance of the ignore file mapped with the collection
@@ -53,11 +58,15 @@ public class IgnoreEntryOccurrence implements Serializable {
 
     /** Collection of ignore entries. */
     @Nonnull
-    private final List<Pair<String, Boolean>> items;
+    private final List<IgnoreRule> items;
 
     /** Current ignore file. */
     @Nullable
-    private VirtualFile file;
+    private volatile VirtualFile file;
+
+    /** Lazily compiled {@link #items}. */
+    @Nullable
+    private volatile IgnoreRuleSet ruleSet;
 
     /**
      * Constructor.
@@ -65,7 +74,7 @@ public class IgnoreEntryOccurrence implements Serializable {
      * @param url   entry URL
      * @param items parsed entry items
      */
-    public IgnoreEntryOccurrence(@Nonnull String url, @Nonnull ArrayList<Pair<String, Boolean>> items) {
+    public IgnoreEntryOccurrence(@Nonnull String url, @Nonnull ArrayList<IgnoreRule> items) {
         this.url = url;
         this.items = List.copyOf(items);
     }
@@ -79,8 +88,8 @@ public class IgnoreEntryOccurrence implements Serializable {
     public int hashCode() {
         HashCodeBuilder builder = new HashCodeBuilder().append(url);
 
-        for (Pair<String, Boolean> item : items) {
-            builder.append(item.first).append(item.second);
+        for (IgnoreRule item : items) {
+            builder.append(item.getValue()).append(item.getSyntax()).append(item.isNegated());
         }
 
         return builder.toHashCode();
@@ -95,21 +104,21 @@ public class IgnoreEntryOccurrence implements Serializable {
     @Override
     public boolean equals(@Nullable Object obj) {
         if (obj instanceof IgnoreEntryOccurrence entry) {
-            if (!url.equals(entry.url) || items.size() != entry.items.size()) {
-                return false;
-            }
-
-            for (int i = 0; i < items.size(); i++) {
-                if (!items.get(i).toString().equals(entry.items.get(i).toString())) {
-                    return false;
-                }
-            }
-
-            return true;
+            return url.equals(entry.url) && items.equals(entry.items);
         }
         return false;
     }
 
+    /**
+     * Returns current ignore file URL.
+     *
+     * @return file URL
+     */
+    @Nonnull
+    public String getUrl() {
+        return url;
+    }
+
     /**
      * Returns current {@link VirtualFile}.
      *
@@ -123,29 +132,81 @@ public class IgnoreEntryOccurrence implements Serializable {
         return file;
     }
 
+    /**
+     * Returns current {@link VirtualFile} resolved with the given cache. Resolved file is kept until it becomes
+     * invalid, so the URL is looked up only once per occurrence and once per cache for all its copies.
+     *
+     * @param cache URL cache
+     * @return current file
+     */
+    @Nullable
+    public VirtualFile getFile(@Nonnull FileUrlCache cache) {
+        VirtualFile current = file;
+        if (current == null || !current.isValid()) {
+            current = cache.find(url);
+            file = current;
+        }
+        return current;
+    }
+
     /**
      * Returns entries for current file.
      *
      * @return entries
      */
     @Nonnull
-    public List<Pair<String, Boolean>> getItems() {
+    public List<IgnoreRule> getItems() {
         return items;
     }
 
     /**
-     * Static helper to write given {@link IgnoreEntryOccurrence} to the output stream.
+     * Returns entries for current file compiled into the {@link IgnoreRuleSet}. Files with equal entries share the set
+     * compiled by the {@link RuleSetCache}.
+     *
+     * @return compiled entries
+     */
+    @Nonnull
+    public IgnoreRuleSet getRuleSet() {
+        IgnoreRuleSet current = ruleSet;
+        if (current == null) {
+            current = RuleSetCache.get(items);
+            ruleSet = current;
+        }
+        return current;
+    }
+
+    /**
+     * Static helper to write given {@link IgnoreEntryOccurrence} to the output stream. Entries are written in the
+     * compact form: a variable-length count, a bit mask of the negated entries and a table of the distinct rules
+     * referenced with their variable-length indexes, so repeated rules are written only once.
      *
      * @param out   output stream
      * @param entry entry to write
      * @throws IOException I/O exception
      */
-    public static synchronized void serialize(@Nonnull DataOutput out, @Nonnull IgnoreEntryOccurrence entry) throws IOException {
+    public static void serialize(@Nonnull DataOutput out, @Nonnull IgnoreEntryOccurrence entry) throws IOException {
         out.writeUTF(entry.url);
-        out.writeInt(entry.items.size());
-        for (Pair<String, Boolean> item : entry.items) {
-            out.writeUTF(item.first);
-            out.writeBoolean(item.second);
+        VarInt.write(out, entry.items.size());
+
+        byte[] negations = new byte[(entry.items.size() + 7) >> 3];
+        Map<IgnoreRule, Integer> table = new LinkedHashMap<>();
+        int[] indexes = new int[entry.items.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            IgnoreRule item = entry.items.get(i);
+            if (item.isNegated()) {
+                negations[i >> 3] |= (byte)(1 << (i & 7));
+            }
+            Integer index = table.putIfAbsent(item.withNegated(false), table.size());
+            indexes[i] = index != null ? index : table.size() - 1;
+        }
+
+        out.write(negations);
+        VarInt.write(out, table.size());
+        for (IgnoreRule rule : table.keySet()) {
+            rule.write(out);
+        }
+        for (int index : indexes) {
+            VarInt.write(out, index);
         }
     }
 
@@ -156,17 +217,24 @@ public class IgnoreEntryOccurrence implements Serializable {
      * @return read {@link IgnoreEntryOccurrence}
      */
     @Nonnull
-    public static synchronized IgnoreEntryOccurrence deserialize(@Nonnull DataInput in) throws IOException {
+    public static IgnoreEntryOccurrence deserialize(@Nonnull DataInput in) throws IOException {
         String url = in.readUTF();
-        ArrayList<Pair<String, Boolean>> items = new ArrayList<>();
-
-        if (!StringUtil.isEmpty(url)) {
-            int size = in.readInt();
-            for (int i = 0; i < size; i++) {
-                String pattern = in.readUTF();
-                Boolean isNegated = in.readBoolean();
-                items.add(Pair.create(pattern, isNegated));
+        int size = VarInt.read(in);
+
+        byte[] negations = new byte[(size + 7) >> 3];
+        in.readFully(negations);
+        IgnoreRule[] table = new IgnoreRule[VarInt.read(in)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = IgnoreRule.read(in);
+        }
+
+        ArrayList<IgnoreRule> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = VarInt.read(in);
+            if (index >= table.length) {
+                throw new IOException("Invalid rule index: " + index);
             }
+            items.add(table[index].withNegated((negations[i >> 3] & (1 << (i & 7))) != 0));
         }
 
         return new IgnoreEntryOccurrence(url, items);
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.indexing;
+
+import consulo.language.ast.IElementType;
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import mobi.hsz.idea.gitignore.lang.IgnoreLanguage;
+import mobi.hsz.idea.gitignore.lexer.IgnoreLexer;
+import mobi.hsz.idea.gitignore.psi.IgnoreTypes;
+import mobi.hsz.idea.gitignore.rules.IgnoreRule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Collects ignore entries straight from the {@link IgnoreLexer} tokens, without building the PSI tree. Tokens are
+ * grouped the same way as the grammar does it: an entry spans from the optional negation to the end of the line and
+ * the <code>syntax:</code> key switches the syntax of all entries that follow it.
+ *
+ * @since 3.2
+ */
+final class IgnoreEntryScanner {
+    /** Private constructor to prevent creating {@link IgnoreEntryScanner} instance. */
+    private IgnoreEntryScanner() {
+    }
+
+    /**
+     * Scans given ignore file content and returns its entries in the order of appearance.
+     *
+     * @param text     file content
+     * @param file     scanned file, used by the lexer to check if the syntax switching is supported
+     * @param language language of the scanned file
+     * @return parsed entries
+     */
+    @Nonnull
+    static ArrayList<IgnoreRule> scan(@Nonnull CharSequence text, @Nullable VirtualFile file,
+                                      @Nonnull IgnoreLanguage language) {
+        ArrayList<IgnoreRule> items = new ArrayList<>();
+        IgnoreLexer lexer = new IgnoreLexer(file);
+        lexer.reset(text, 0, text.length(), IgnoreLexer.YYINITIAL);
+
+        IgnoreBundle.Syntax syntax = language.getDefaultSyntax();
+        IElementType type = advance(lexer);
+        while (type != null) {
+            if (type == IgnoreTypes.SYNTAX_KEY) {
+                do {
+                    type = advance(lexer);
+                } while (type == IgnoreTypes.CRLF);
+
+                if (type == IgnoreTypes.VALUE) {
+                    IgnoreBundle.Syntax found = IgnoreBundle.Syntax.find(
+                        text.subSequence(lexer.getTokenStart(), lexer.getTokenEnd()).toString()
+                    );
+                    if (found != null) {
+                        syntax = found;
+                    }
+                    type = advance(lexer);
+                }
+                continue;
+            }
+
+            boolean negated = type == IgnoreTypes.NEGATION;
+            if (negated) {
+                type = advance(lexer);
+            }
+
+            int start = lexer.getTokenStart();
+            int end = start;
+            boolean value = false;
+            while (isEntryToken(type)) {
+                value |= type != IgnoreTypes.SLASH;
+                end = lexer.getTokenEnd();
+                type = advance(lexer);
+            }
+
+            if (value) {
+                items.add(new IgnoreRule(text.subSequence(start, end).toString(), syntax, negated));
+            }
+            else if (!negated) {
+                type = advance(lexer);
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * Checks if given token belongs to the entry.
+     *
+     * @param type token type
+     * @return token is a part of the entry
+     */
+    private static boolean isEntryToken(@Nullable IElementType type) {
+        return type == IgnoreTypes.VALUE || type == IgnoreTypes.SLASH ||
+            type == IgnoreTypes.BRACKET_LEFT || type == IgnoreTypes.BRACKET_RIGHT;
+    }
+
+    /**
+     * Returns next token of the lexer.
+     *
+     * @param lexer lexer
+     * @return token type or <code>null</code> at the end of the content
+     */
+    @Nullable
+    private static IElementType advance(@Nonnull IgnoreLexer lexer) {
+        try {
+            return lexer.advance();
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -33,17 +33,14 @@ import consulo.language.psi.stub.FileBasedIndex;
 import consulo.language.psi.stub.FileContent;
 import consulo.project.Project;
 import consulo.util.collection.ContainerUtil;
-import consulo.util.lang.Pair;
 import consulo.virtualFileSystem.VirtualFile;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import mobi.hsz.idea.gitignore.IgnoreBundle;
 import mobi.hsz.idea.gitignore.IgnoreManager;
 import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
 import mobi.hsz.idea.gitignore.lang.IgnoreLanguage;
-import mobi.hsz.idea.gitignore.psi.IgnoreEntry;
-import mobi.hsz.idea.gitignore.psi.IgnoreFile;
-import mobi.hsz.idea.gitignore.psi.IgnoreVisitor;
-import mobi.hsz.idea.gitignore.util.Glob;
+import mobi.hsz.idea.gitignore.rules.IgnoreRule;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -63,7 +60,7 @@ public class IgnoreFilesIndex extends AbstractIgnoreFilesIndex<IgnoreFileTypeKey
     public static final ID<IgnoreFileTypeKey, IgnoreEntryOccurrence> KEY = ID.create("IgnoreFilesIndex");
 
     /** Current indexer version. Has to be increased if significant changes have been done. */
-    private static final int VERSION = 5;
+    static final int VERSION = 9;
 
     /**
      * Returns indexer's name.
@@ -85,25 +82,38 @@ public class IgnoreFilesIndex extends AbstractIgnoreFilesIndex<IgnoreFileTypeKey
     @Nonnull
     @Override
     public Map<IgnoreFileTypeKey, IgnoreEntryOccurrence> map(@Nonnull FileContent inputData) {
-        if (!(inputData.getPsiFile() instanceof IgnoreFile)) {
+        IgnoreEntryOccurrence occurrence = createOccurrence(inputData);
+        if (occurrence == null) {
             return Collections.emptyMap();
         }
 
-        ArrayList<Pair<String, Boolean>> items = new ArrayList<>();
-        inputData.getPsiFile().acceptChildren(new IgnoreVisitor() {
-            @Override
-            public void visitEntry(@Nonnull IgnoreEntry entry) {
-                String regex = Glob.getRegex(entry.getValue(), entry.getSyntax(), false);
-                items.add(Pair.create(regex, entry.isNegated()));
-            }
-        });
-
         return Collections.singletonMap(
             new IgnoreFileTypeKey((IgnoreFileType)inputData.getFileType()),
-            new IgnoreEntryOccurrence(inputData.getFile().getUrl(), items)
+            occurrence
         );
     }
 
+    /**
+     * Parses indexed file into the {@link IgnoreEntryOccurrence}. Entries are collected with the
+     * {@link IgnoreEntryScanner} straight from the lexer tokens, so the PSI tree is not built during indexing.
+     *
+     * @param inputData indexed file data
+     * @return occurrence or <code>null</code> if file is not an ignore file
+     */
+    @Nullable
+    static IgnoreEntryOccurrence createOccurrence(@Nonnull FileContent inputData) {
+        if (!(inputData.getFileType() instanceof IgnoreFileType fileType)) {
+            return null;
+        }
+
+        ArrayList<IgnoreRule> items = IgnoreEntryScanner.scan(
+            inputData.getContentAsText(),
+            inputData.getFile(),
+            fileType.getIgnoreLanguage()
+        );
+        return new IgnoreEntryOccurrence(inputData.getFile().getUrl(), items);
+    }
+
     /**
      * Saves data to the indexing output stream.
      *
@@ -112,7 +122,7 @@ public class IgnoreFilesIndex extends AbstractIgnoreFilesIndex<IgnoreFileTypeKey
      * @throws IOException if an I/O error occurs
      */
     @Override
-    public synchronized void save(@Nonnull DataOutput out, IgnoreFileTypeKey value) throws IOException {
+    public void save(@Nonnull DataOutput out, IgnoreFileTypeKey value) throws IOException {
         out.writeUTF(value.getType().getLanguageName());
     }
 
@@ -124,7 +134,7 @@ public class IgnoreFilesIndex extends AbstractIgnoreFilesIndex<IgnoreFileTypeKey
      * @throws IOException if an I/O error occurs
      */
     @Override
-    public synchronized IgnoreFileTypeKey read(@Nonnull DataInput in) throws IOException {
+    public IgnoreFileTypeKey read(@Nonnull DataInput in) throws IOException {
         String languageName = in.readUTF();
         for (IgnoreLanguage language : IgnoreBundle.LANGUAGES) {
             IgnoreFileType type = language.getFileType();
@@ -147,7 +157,7 @@ public class IgnoreFilesIndex extends AbstractIgnoreFilesIndex<IgnoreFileTypeKey
     }
 
     /** {@link DataExternalizer} instance. */
-    private static final DataExternalizer<IgnoreEntryOccurrence> DATA_EXTERNALIZER = new DataExternalizer<>() {
+    static final DataExternalizer<IgnoreEntryOccurrence> DATA_EXTERNALIZER = new DataExternalizer<>() {
         /**
          * Saves data in the output stream.
          *
@@ -190,6 +200,16 @@ public class IgnoreFilesIndex extends AbstractIgnoreFilesIndex<IgnoreFileTypeKey
      */
     @Override
     public boolean acceptInput(Project project, @Nonnull VirtualFile file) {
+        return isIgnoreFile(file);
+    }
+
+    /**
+     * Checks if given {@link VirtualFile} is an ignore file or waits for the association with ignore file type.
+     *
+     * @param file to check
+     * @return file is an ignore file
+     */
+    static boolean isIgnoreFile(@Nonnull VirtualFile file) {
         return file.getFileType() instanceof IgnoreFileType ||
             IgnoreManager.FILE_TYPES_ASSOCIATION_QUEUE.containsKey(file.getName());
     }
@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.indexing;
+
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
+import mobi.hsz.idea.gitignore.util.Utils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads {@link IgnoreEntryOccurrence} straight from the ignore file content, without the {@link IgnoreFilesIndex}, so
+ * rules are available in dumb mode. Entries are parsed with the {@link IgnoreEntryScanner} and kept in a small cache
+ * keyed by the file URL and its content hash, so unchanged files are not parsed again.
+ *
+ * @since 3.2
+ */
+public final class IgnoreFilesLoader {
+    /** Maximum amount of the cached files. */
+    private static final int CACHE_SIZE = 128;
+
+    /** Parsed files mapped with their URLs, in the access order. */
+    @Nonnull
+    private final Map<String, Cached> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Returns entries of the given ignore file. Cached entries are reused if the file's timestamp and length did not
+     * change or if its content hash is still the same.
+     *
+     * @param file     ignore file
+     * @param fileType ignore file type
+     * @return entries or <code>null</code> if file cannot be read
+     */
+    @Nullable
+    public IgnoreEntryOccurrence load(@Nonnull VirtualFile file, @Nonnull IgnoreFileType fileType) {
+        String url = file.getUrl();
+        long timeStamp = file.getTimeStamp();
+        long length = file.getLength();
+
+        Cached cached;
+        synchronized (cache) {
+            cached = cache.get(url);
+        }
+        if (cached != null && cached.fileType == fileType && cached.timeStamp == timeStamp && cached.length == length) {
+            return cached.occurrence;
+        }
+
+        byte[] content;
+        try {
+            content = file.contentsToByteArray();
+        }
+        catch (IOException e) {
+            return null;
+        }
+
+        long hash = Utils.getContentHash(content);
+        IgnoreEntryOccurrence occurrence;
+        if (cached != null && cached.fileType == fileType && cached.hash == hash) {
+            occurrence = cached.occurrence;
+        }
+        else {
+            occurrence = new IgnoreEntryOccurrence(url, IgnoreEntryScanner.scan(
+                new String(content, file.getCharset()),
+                file,
+                fileType.getIgnoreLanguage()
+            ));
+        }
+
+        synchronized (cache) {
+            cache.put(url, new Cached(fileType, timeStamp, length, hash, occurrence));
+        }
+        return occurrence;
+    }
+
+    /** Drops all cached entries. */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /** Parsed ignore file with the state it had when it was read. */
+    private static final class Cached {
+        /** Ignore file type. */
+        @Nonnull
+        private final IgnoreFileType fileType;
+
+        /** Ignore file timestamp. */
+        private final long timeStamp;
+
+        /** Ignore file length. */
+        private final long length;
+
+        /** Ignore file content hash. */
+        private final long hash;
+
+        /** Parsed entries. */
+        @Nonnull
+        private final IgnoreEntryOccurrence occurrence;
+
+        /**
+         * Constructor.
+         *
+         * @param fileType   ignore file type
+         * @param timeStamp  ignore file timestamp
+         * @param length     ignore file length
+         * @param hash       ignore file content hash
+         * @param occurrence parsed entries
+         */
+        Cached(@Nonnull IgnoreFileType fileType, long timeStamp, long length, long hash,
+               @Nonnull IgnoreEntryOccurrence occurrence) {
+            this.fileType = fileType;
+            this.timeStamp = timeStamp;
+            this.length = length;
+            this.hash = hash;
+            this.occurrence = occurrence;
+        }
+    }
+}
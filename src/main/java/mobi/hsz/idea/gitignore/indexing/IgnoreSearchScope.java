@@ -28,11 +28,14 @@ import consulo.content.scope.SearchScope;
 import consulo.language.psi.scope.GlobalSearchScope;
 import consulo.module.Module;
 import consulo.project.Project;
+import consulo.util.collection.ContainerUtil;
 import consulo.virtualFileSystem.VirtualFile;
 import jakarta.annotation.Nonnull;
 import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
 
-import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides extended {@link GlobalSearchScope} with additional ignore files (i.e. outer gitignore files).
@@ -42,21 +45,51 @@ import java.util.HashSet;
  */
 public class IgnoreSearchScope extends GlobalSearchScope
 {
+    /** Cached immutable scopes, rebuilt when the additional files change. */
+    private static final ConcurrentMap<Project, GlobalSearchScope> CACHE = ContainerUtil.newConcurrentMap();
+
+    /** Invalidations counter, so scopes built from the outdated additional files are not put back to the cache. */
+    private static final AtomicLong VERSION = new AtomicLong();
+
     private IgnoreSearchScope(@Nonnull Project project) {
         super(project);
     }
 
     /**
-     * Returns {@link GlobalSearchScope#projectScope(Project)} instance united with additional files.
+     * Returns {@link GlobalSearchScope#projectScope(Project)} instance united with additional files. Scope is cached
+     * until the additional files of the project change.
      *
      * @param project current project
      * @return extended instance of {@link GlobalSearchScope}
      */
     @Nonnull
     public static GlobalSearchScope get(@Nonnull Project project) {
+        long version = VERSION.get();
+        Set<VirtualFile> files = ExternalIndexableSetContributor.getAdditionalFiles(project);
+        GlobalSearchScope cached = CACHE.get(project);
+        if (cached != null) {
+            return cached;
+        }
+
         IgnoreSearchScope scope = new IgnoreSearchScope(project);
-        HashSet<VirtualFile> files = ExternalIndexableSetContributor.getAdditionalFiles(project);
-        return scope.uniteWith(GlobalSearchScope.filesScope(project, files));
+        GlobalSearchScope result = scope.uniteWith(GlobalSearchScope.filesScope(project, files));
+        CACHE.compute(project, (key, current) -> current == null && VERSION.get() == version ? result : current);
+        return result;
+    }
+
+    /** Removes scopes of the disposed projects from the {@link #CACHE} map. */
+    static void invalidateDisposedProjects() {
+        CACHE.keySet().removeIf(Project::isDisposed);
+    }
+
+    /**
+     * Removes cached scope for the given project, so it is built again with the current additional files.
+     *
+     * @param project current project
+     */
+    static void invalidateCache(@Nonnull Project project) {
+        VERSION.incrementAndGet();
+        CACHE.remove(project);
     }
 
     @Override
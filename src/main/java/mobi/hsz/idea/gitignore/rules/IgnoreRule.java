@@ -0,0 +1,393 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import mobi.hsz.idea.gitignore.util.Glob;
+import mobi.hsz.idea.gitignore.util.GlobMatcher;
+import mobi.hsz.idea.gitignore.util.MatcherUtil;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Single indexed ignore rule. {@link IgnoreBundle.Syntax#GLOB} rules are matched with the regex-free
+ * {@link GlobMatcher}, {@link IgnoreBundle.Syntax#REGEXP} rules and globs that cannot be expressed without the regex
+ * engine fall back to the {@link Pattern}.
+ *
+ * @since 3.2
+ */
+public class IgnoreRule {
+    /** Marker of the rule that cannot be compiled. */
+    private static final Object INVALID = new Object();
+
+    /** Rule value without the negation sign. */
+    @Nonnull
+    private final String value;
+
+    /** Rule syntax. */
+    @Nonnull
+    private final IgnoreBundle.Syntax syntax;
+
+    /** Rule is negated. */
+    private final boolean negated;
+
+    /** Rule shape. */
+    @Nonnull
+    private final Shape shape;
+
+    /** Literal used by the {@link Shape#SUFFIX}, {@link Shape#BASENAME} and {@link Shape#ANCHORED} rules. */
+    @Nonnull
+    private final String literal;
+
+    /** Rule matches directories only - ends with slash. */
+    private final boolean directoryOnly;
+
+    /** Lazily compiled {@link GlobMatcher} or {@link Pattern}. */
+    @Nullable
+    private volatile Object compiled;
+
+    /**
+     * Constructor.
+     *
+     * @param value   rule value without the negation sign
+     * @param syntax  rule syntax
+     * @param negated rule is negated
+     */
+    public IgnoreRule(@Nonnull String value, @Nonnull IgnoreBundle.Syntax syntax, boolean negated) {
+        this.value = value;
+        this.syntax = syntax;
+        this.negated = negated;
+
+        String glob = value.trim();
+        boolean directory = glob.endsWith("/");
+        String body = directory ? glob.substring(0, glob.length() - 1) : glob;
+        Shape shape = Shape.GENERAL;
+        String literal = body;
+
+        if (syntax == IgnoreBundle.Syntax.GLOB && !body.isEmpty()) {
+            if (body.length() > 1 && body.charAt(0) == '*' && isLiteral(body, 1) && body.indexOf('/') < 0) {
+                shape = Shape.SUFFIX;
+                literal = body.substring(1);
+            }
+            else if (isLiteral(body, 0)) {
+                if (body.charAt(0) == '/') {
+                    literal = body.substring(1);
+                    shape = literal.isEmpty() || literal.charAt(0) == '/' ? Shape.GENERAL : Shape.ANCHORED;
+                }
+                else {
+                    shape = body.indexOf('/') < 0 ? Shape.BASENAME : Shape.ANCHORED;
+                }
+            }
+        }
+
+        this.shape = shape;
+        this.literal = shape == Shape.GENERAL ? glob : literal;
+        this.directoryOnly = shape != Shape.GENERAL && directory;
+    }
+
+    /**
+     * Constructor used to restore the rule compiled during indexing or to copy the rule.
+     *
+     * @param value         rule value without the negation sign
+     * @param syntax        rule syntax
+     * @param negated       rule is negated
+     * @param shape         rule shape
+     * @param literal       rule literal
+     * @param directoryOnly rule matches directories only
+     * @param compiled      compiled {@link GlobMatcher} or {@link Pattern}, <code>null</code> if it has to be compiled
+     *                      on the first use
+     */
+    private IgnoreRule(@Nonnull String value, @Nonnull IgnoreBundle.Syntax syntax, boolean negated,
+                       @Nonnull Shape shape, @Nonnull String literal, boolean directoryOnly,
+                       @Nullable Object compiled) {
+        this.value = value;
+        this.syntax = syntax;
+        this.negated = negated;
+        this.shape = shape;
+        this.literal = literal;
+        this.directoryOnly = directoryOnly;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Returns the same rule with the given negation, sharing the compiled form.
+     *
+     * @param negated rule is negated
+     * @return rule with the given negation
+     */
+    @Nonnull
+    public IgnoreRule withNegated(boolean negated) {
+        if (negated == this.negated) {
+            return this;
+        }
+        Object current = compiled;
+        return new IgnoreRule(value, syntax, negated, shape, literal, directoryOnly, current);
+    }
+
+    /**
+     * Writes rule together with its compiled form to the output stream. Negation is not written - rules that differ
+     * only in the negation share the same written form and the caller stores the negation separately.
+     * {@link Shape#GENERAL} glob rules store their {@link GlobMatcher} program, so restored rules are matched without
+     * parsing the glob or compiling the regex.
+     *
+     * @param out output stream
+     * @throws IOException I/O exception
+     */
+    public void write(@Nonnull DataOutput out) throws IOException {
+        out.writeUTF(value);
+        out.writeByte(syntax.ordinal());
+        out.writeByte(shape.ordinal());
+        out.writeBoolean(directoryOnly);
+        if (shape != Shape.GENERAL) {
+            out.writeUTF(literal);
+            return;
+        }
+
+        GlobMatcher globMatcher = syntax == IgnoreBundle.Syntax.GLOB ? getGlobMatcher() : null;
+        out.writeBoolean(globMatcher != null);
+        if (globMatcher != null) {
+            globMatcher.write(out);
+        }
+    }
+
+    /**
+     * Reads rule written with {@link #write(DataOutput)}. Returned rule is not negated.
+     *
+     * @param in input stream
+     * @return restored rule
+     * @throws IOException I/O exception
+     */
+    @Nonnull
+    public static IgnoreRule read(@Nonnull DataInput in) throws IOException {
+        String value = in.readUTF();
+        IgnoreBundle.Syntax syntax = readConstant(in, IgnoreBundle.Syntax.values());
+        Shape shape = readConstant(in, Shape.values());
+        boolean directoryOnly = in.readBoolean();
+        if (shape != Shape.GENERAL) {
+            return new IgnoreRule(value, syntax, false, shape, in.readUTF(), directoryOnly, null);
+        }
+
+        String glob = value.trim();
+        GlobMatcher globMatcher = in.readBoolean() ? GlobMatcher.read(glob, in) : null;
+        return new IgnoreRule(value, syntax, false, shape, glob, directoryOnly, globMatcher);
+    }
+
+    /**
+     * Reads enum constant written as its ordinal.
+     *
+     * @param in        input stream
+     * @param constants all constants of the enum
+     * @return read constant
+     * @throws IOException if the ordinal is out of range
+     */
+    @Nonnull
+    private static <E extends Enum<E>> E readConstant(@Nonnull DataInput in, @Nonnull E[] constants)
+        throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new IOException("Invalid rule constant: " + ordinal);
+        }
+        return constants[ordinal];
+    }
+
+    /**
+     * Checks if the fragment of the glob contains no wildcards, classes nor escapes.
+     *
+     * @param glob  glob to check
+     * @param start fragment start
+     * @return fragment is a plain literal
+     */
+    private static boolean isLiteral(@Nonnull String glob, int start) {
+        for (int i = start; i < glob.length(); i++) {
+            switch (glob.charAt(i)) {
+                case '*':
+                case '?':
+                case '[':
+                case ']':
+                case '\\':
+                case '{':
+                case '}':
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns rule value without the negation sign.
+     *
+     * @return value
+     */
+    @Nonnull
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Returns rule syntax.
+     *
+     * @return syntax
+     */
+    @Nonnull
+    public IgnoreBundle.Syntax getSyntax() {
+        return syntax;
+    }
+
+    /**
+     * Checks if rule is negated.
+     *
+     * @return rule is negated
+     */
+    public boolean isNegated() {
+        return negated;
+    }
+
+    /**
+     * Returns rule shape.
+     *
+     * @return shape
+     */
+    @Nonnull
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns literal of the rule - suffix, basename or anchored path, depending on the {@link #getShape()}.
+     *
+     * @return literal
+     */
+    @Nonnull
+    public String getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Checks if rule matches directories only.
+     *
+     * @return directory only
+     */
+    public boolean isDirectoryOnly() {
+        return directoryOnly;
+    }
+
+    /**
+     * Checks if given relative path matches the rule.
+     *
+     * @param matcher {@link MatcherUtil} used for the regex rules
+     * @param path    relative path, directories end with slash
+     * @return path matches the rule
+     */
+    public boolean matches(@Nonnull MatcherUtil matcher, @Nonnull String path) {
+        Object current = getCompiled();
+        if (current instanceof GlobMatcher globMatcher) {
+            return globMatcher.matches(path);
+        }
+        return current instanceof Pattern pattern && matcher.match(pattern, path);
+    }
+
+    /**
+     * Returns {@link GlobMatcher} of the rule if it can be matched without the regex.
+     *
+     * @return glob matcher or <code>null</code>
+     */
+    @Nullable
+    public GlobMatcher getGlobMatcher() {
+        return getCompiled() instanceof GlobMatcher globMatcher ? globMatcher : null;
+    }
+
+    /**
+     * Returns {@link Pattern} of the rule if it cannot be matched with {@link GlobMatcher}.
+     *
+     * @return pattern or <code>null</code>
+     */
+    @Nullable
+    public Pattern getPattern() {
+        return getCompiled() instanceof Pattern pattern ? pattern : null;
+    }
+
+    /**
+     * Compiles rule on the first use.
+     *
+     * @return {@link GlobMatcher}, {@link Pattern} or {@link #INVALID}
+     */
+    @Nonnull
+    private Object getCompiled() {
+        Object current = compiled;
+        if (current == null) {
+            if (syntax == IgnoreBundle.Syntax.GLOB) {
+                current = Glob.createMatcher(value, false);
+            }
+            if (current == null) {
+                current = Glob.getPattern(Glob.getRegex(value, syntax, false));
+            }
+            if (current == null) {
+                current = INVALID;
+            }
+            compiled = current;
+        }
+        return current;
+    }
+
+    /**
+     * Shape of the rule. Plain literal rules are matched with hash lookups in {@link IgnoreRuleSet}, the results are
+     * equal to the {@link Glob#createRegex(String, boolean)} translation.
+     */
+    public enum Shape {
+        /** <code>*.log</code> - last path segment ends with the literal. */
+        SUFFIX,
+
+        /** <code>.idea</code> or <code>node_modules/</code> - last path segment equals the literal. */
+        BASENAME,
+
+        /** <code>/build</code> or <code>dir/file.txt</code> - relative path equals the literal. */
+        ANCHORED,
+
+        /** Any other rule, matched with {@link GlobMatcher} or {@link Pattern}. */
+        GENERAL
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return obj instanceof IgnoreRule rule
+            && negated == rule.negated && syntax == rule.syntax && value.equals(rule.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, syntax, negated);
+    }
+
+    @Override
+    public String toString() {
+        return (negated ? "!" : "") + value;
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import jakarta.annotation.Nonnull;
+import mobi.hsz.idea.gitignore.util.AhoCorasick;
+import mobi.hsz.idea.gitignore.util.GlobMatcher;
+import mobi.hsz.idea.gitignore.util.GlobSetMatcher;
+import mobi.hsz.idea.gitignore.util.MatcherUtil;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compiled rules of the single ignore file. Rules are sorted into the {@link IgnoreRule.Shape} classes - extensions,
+ * suffixes, basenames and anchored paths are answered with hash lookups on the path's last segment or the whole path.
+ * General globs are combined into a single {@link GlobSetMatcher} that checks all of them in one pass over the path.
+ * Remaining regex rules are evaluated only if they were defined after the last rule that matched, so they can still
+ * change the result, and only if all of their literal parts were found by the {@link AhoCorasick} prefilter.
+ *
+ * @since 3.2
+ */
+public class IgnoreRuleSet {
+    /** Empty rule set. */
+    public static final IgnoreRuleSet EMPTY = compile(List.of());
+
+    /** All rules in the file order. */
+    @Nonnull
+    private final List<IgnoreRule> rules;
+
+    /** {@link IgnoreRule.Shape#ANCHORED} rules mapped with the relative paths. */
+    @Nonnull
+    private final LiteralTable paths = new LiteralTable();
+
+    /** {@link IgnoreRule.Shape#BASENAME} rules mapped with the file names. */
+    @Nonnull
+    private final LiteralTable names = new LiteralTable();
+
+    /** {@link IgnoreRule.Shape#SUFFIX} rules that are extensions, i.e. <code>*.log</code>, mapped with the extension. */
+    @Nonnull
+    private final LiteralTable extensions = new LiteralTable();
+
+    /** Indexes of the remaining {@link IgnoreRule.Shape#SUFFIX} rules. */
+    @Nonnull
+    private final int[] suffixes;
+
+    /** {@link IgnoreRule.Shape#GENERAL} rules expressed as globs, combined into one automaton. */
+    @Nonnull
+    private final GlobSetMatcher globs;
+
+    /** Indexes of the rules combined in {@link #globs}. */
+    @Nonnull
+    private final int[] globIndexes;
+
+    /** Indexes of the {@link IgnoreRule.Shape#GENERAL} rules that need the regex, in ascending order. */
+    @Nonnull
+    private final int[] patterns;
+
+    /** Prefilter of the {@link #patterns} rules built over their literal parts. */
+    @Nonnull
+    private final AhoCorasick prefilter;
+
+    /**
+     * Constructor.
+     *
+     * @param rules rules in the file order
+     */
+    private IgnoreRuleSet(@Nonnull List<IgnoreRule> rules) {
+        this.rules = rules;
+
+        List<Integer> suffixes = new ArrayList<>();
+        List<GlobMatcher> globs = new ArrayList<>();
+        List<Integer> globIndexes = new ArrayList<>();
+        List<Integer> patterns = new ArrayList<>();
+        List<String[]> parts = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            IgnoreRule rule = rules.get(i);
+            String literal = rule.getLiteral();
+            switch (rule.getShape()) {
+                case ANCHORED:
+                    paths.put(literal, i, rule.isDirectoryOnly());
+                    break;
+                case BASENAME:
+                    names.put(literal, i, rule.isDirectoryOnly());
+                    break;
+                case SUFFIX:
+                    if (literal.lastIndexOf('.') == 0) {
+                        extensions.put(literal, i, rule.isDirectoryOnly());
+                    }
+                    else {
+                        suffixes.add(i);
+                    }
+                    break;
+                default:
+                    GlobMatcher globMatcher = rule.getGlobMatcher();
+                    if (globMatcher != null) {
+                        globs.add(globMatcher);
+                        globIndexes.add(i);
+                    }
+                    else if (rule.getPattern() != null) {
+                        patterns.add(i);
+                        parts.add(MatcherUtil.getParts(rule.getPattern()));
+                    }
+            }
+        }
+
+        this.suffixes = suffixes.stream().mapToInt(Integer::intValue).toArray();
+        this.globs = GlobSetMatcher.create(globs);
+        this.globIndexes = globIndexes.stream().mapToInt(Integer::intValue).toArray();
+        this.patterns = patterns.stream().mapToInt(Integer::intValue).toArray();
+        this.prefilter = new AhoCorasick(parts);
+    }
+
+    /**
+     * Compiles rules of the single ignore file.
+     *
+     * @param rules rules in the file order
+     * @return compiled rule set
+     */
+    @Nonnull
+    public static IgnoreRuleSet compile(@Nonnull List<IgnoreRule> rules) {
+        return new IgnoreRuleSet(rules);
+    }
+
+    /**
+     * Returns all rules in the file order.
+     *
+     * @return rules
+     */
+    @Nonnull
+    public List<IgnoreRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Finds the last rule that matches given relative path - the one that decides about the path's status.
+     *
+     * @param matcher {@link MatcherUtil} used for the regex rules
+     * @param path    relative path, directories end with slash
+     * @return index of the last matching rule or <code>-1</code> if none matches
+     */
+    public int lastMatch(@Nonnull MatcherUtil matcher, @Nonnull String path) {
+        boolean directory = path.endsWith("/");
+        return lastMatch(matcher, path, 0, directory ? path.length() - 1 : path.length(), directory);
+    }
+
+    /**
+     * Finds the last rule that matches the relative path given as a fragment of the longer path, i.e. the absolute
+     * one. Fragment is read in place, so no substring has to be created unless a regex rule has to be evaluated.
+     *
+     * @param matcher   {@link MatcherUtil} used for the regex rules
+     * @param path      path containing the relative path
+     * @param start     relative path start, inclusive
+     * @param end       relative path end, exclusive, without the trailing slash
+     * @param directory path points to the directory
+     * @return index of the last matching rule or <code>-1</code> if none matches
+     */
+    public int lastMatch(@Nonnull MatcherUtil matcher, @Nonnull String path, int start, int end, boolean directory) {
+        int nameStart = Math.max(start, path.lastIndexOf('/', end - 1) + 1);
+
+        int result = Math.max(paths.get(path, start, end, directory), names.get(path, nameStart, end, directory));
+        int dot = path.lastIndexOf('.', end - 1);
+        if (dot >= nameStart) {
+            result = Math.max(result, extensions.get(path, dot, end, directory));
+        }
+
+        for (int index : suffixes) {
+            IgnoreRule rule = rules.get(index);
+            String literal = rule.getLiteral();
+            if (index > result && (directory || !rule.isDirectoryOnly()) && end - nameStart >= literal.length()
+                && path.regionMatches(end - literal.length(), literal, 0, literal.length())) {
+                result = index;
+            }
+        }
+
+        if (globIndexes.length > 0 && globIndexes[globIndexes.length - 1] > result) {
+            int glob = globs.lastMatch(path, start, end, directory);
+            if (glob >= 0) {
+                result = Math.max(result, globIndexes[glob]);
+            }
+        }
+
+        if (patterns.length > 0 && patterns[patterns.length - 1] > result) {
+            String relativePath = directory ? path.substring(start, end) + "/" : path.substring(start, end);
+            BitSet candidates = prefilter.candidates(relativePath);
+            for (int i = candidates.previousSetBit(patterns.length - 1); i >= 0 && patterns[i] > result;
+                 i = candidates.previousSetBit(i - 1)) {
+                if (rules.get(patterns[i]).matches(matcher, relativePath)) {
+                    return patterns[i];
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Hash table of the literal rules that keeps the index of the last rule defined for every literal. Keys are looked
+     * up with fragments of the checked path, so the table uses open addressing with {@link String#hashCode()}
+     * compatible hashes computed over the fragment.
+     */
+    private static final class LiteralTable {
+        /** Rules matching files and directories. */
+        @Nonnull
+        private final Table any = new Table();
+
+        /** Rules matching directories only. */
+        @Nonnull
+        private final Table directories = new Table();
+
+        /**
+         * Adds rule to the table. Rules have to be added in the file order.
+         *
+         * @param literal       rule literal
+         * @param index         rule index
+         * @param directoryOnly rule matches directories only
+         */
+        void put(@Nonnull String literal, int index, boolean directoryOnly) {
+            (directoryOnly ? directories : any).put(literal, index);
+        }
+
+        /**
+         * Returns index of the last rule defined for the given path fragment.
+         *
+         * @param path      path containing the key
+         * @param start     key start, inclusive
+         * @param end       key end, exclusive
+         * @param directory checked path is a directory
+         * @return rule index or <code>-1</code>
+         */
+        int get(@Nonnull String path, int start, int end, boolean directory) {
+            int result = any.get(path, start, end);
+            if (directory) {
+                result = Math.max(result, directories.get(path, start, end));
+            }
+            return result;
+        }
+    }
+
+    /** Open addressing hash table mapping literals with the rule indexes. */
+    private static final class Table {
+        /** Stored literals, <code>null</code> for the empty slots. */
+        @Nonnull
+        private String[] keys = new String[0];
+
+        /** Rule indexes aligned with {@link #keys}. */
+        @Nonnull
+        private int[] values = new int[0];
+
+        /** Amount of stored literals. */
+        private int size;
+
+        /**
+         * Stores rule index for the literal, replacing the previous one.
+         *
+         * @param key   literal
+         * @param value rule index
+         */
+        void put(@Nonnull String key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(Math.max(8, keys.length * 2));
+            }
+            int slot = find(keys, key, 0, key.length(), key.hashCode());
+            if (keys[slot] == null) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        /**
+         * Returns rule index stored for the path fragment.
+         *
+         * @param path  path containing the key
+         * @param start key start, inclusive
+         * @param end   key end, exclusive
+         * @return rule index or <code>-1</code>
+         */
+        int get(@Nonnull String path, int start, int end) {
+            if (size == 0) {
+                return -1;
+            }
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int slot = find(keys, path, start, end, hash);
+            return keys[slot] != null ? values[slot] : -1;
+        }
+
+        /**
+         * Rehashes stored literals into the larger arrays.
+         *
+         * @param capacity new capacity, power of two
+         */
+        private void resize(int capacity) {
+            String[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new String[capacity];
+            values = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = find(keys, oldKeys[i], 0, oldKeys[i].length(), oldKeys[i].hashCode());
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        /**
+         * Finds slot that contains given key or the empty slot where it should be stored.
+         *
+         * @param keys  table keys
+         * @param path  path containing the key
+         * @param start key start, inclusive
+         * @param end   key end, exclusive
+         * @param hash  key hash
+         * @return slot index
+         */
+        private static int find(@Nonnull String[] keys, @Nonnull String path, int start, int end, int hash) {
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null && !(keys[slot].length() == end - start
+                && keys[slot].regionMatches(0, path, start, end - start))) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
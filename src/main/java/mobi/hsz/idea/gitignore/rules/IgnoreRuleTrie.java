@@ -0,0 +1,394 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
+import mobi.hsz.idea.gitignore.indexing.IgnoreEntryOccurrence;
+
+import java.util.*;
+
+/**
+ * Immutable directory-keyed trie of the indexed ignore files. Every node represents a directory that contains at least
+ * one ignore file and points to the nearest ancestor node, so a lookup visits only the ignore files located on the
+ * ancestor chain of the checked file.
+ *
+ * @since 3.2
+ */
+public class IgnoreRuleTrie {
+    /** Empty trie instance. */
+    public static final IgnoreRuleTrie EMPTY = new IgnoreRuleTrie(Collections.emptyMap());
+
+    /** Nodes mapped with the directories they describe. */
+    @Nonnull
+    private final Map<VirtualFile, Node> nodes;
+
+    /**
+     * Constructor.
+     *
+     * @param nodes trie nodes
+     */
+    private IgnoreRuleTrie(@Nonnull Map<VirtualFile, Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Creates new {@link Builder} instance.
+     *
+     * @return builder
+     */
+    @Nonnull
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates new {@link Builder} instance that contains all sources of the trie, so single ignore files can be
+     * replaced without collecting and compiling the others again.
+     *
+     * @return builder
+     */
+    @Nonnull
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        for (Node node : nodes.values()) {
+            builder.sources.put(node.directory, new ArrayList<>(node.sources));
+        }
+        return builder;
+    }
+
+    /**
+     * Checks if trie contains any rules.
+     *
+     * @return trie is empty
+     */
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * Returns all nodes of the trie.
+     *
+     * @return nodes
+     */
+    @Nonnull
+    public Collection<Node> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
+    /**
+     * Returns node describing the given directory.
+     *
+     * @param directory directory
+     * @return node or <code>null</code> if there are no ignore files attached to the directory
+     */
+    @Nullable
+    public Node getNode(@Nonnull VirtualFile directory) {
+        return nodes.get(directory);
+    }
+
+    /**
+     * Finds the deepest node which rules can be applied to the given file. Rules of the directory itself are not
+     * applied to it, so the lookup starts with the file's parent.
+     *
+     * @param file file to check
+     * @return deepest node or <code>null</code> if there are no rules above the file
+     */
+    @Nullable
+    public Node findDeepest(@Nonnull VirtualFile file) {
+        for (VirtualFile directory = file.getParent(); directory != null; directory = directory.getParent()) {
+            Node node = nodes.get(directory);
+            if (node != null) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns nodes located on the ancestor chain of the given file, ordered from the shallowest to the deepest one -
+     * in the order git applies them.
+     *
+     * @param file file to check
+     * @return nodes list
+     */
+    @Nonnull
+    public List<Node> getAncestorChain(@Nonnull VirtualFile file) {
+        Node node = findDeepest(file);
+        if (node == null) {
+            return Collections.emptyList();
+        }
+
+        List<Node> chain = new ArrayList<>(node.depth + 1);
+        for (; node != null; node = node.parent) {
+            chain.add(node);
+        }
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    /**
+     * Kind of the rules source which defines its precedence inside the single node. Constants are ordered as Git
+     * applies them - <code>core.excludesFile</code>, then <code>.git/info/exclude</code>, then
+     * <code>.gitignore</code> - so the later kind wins.
+     */
+    public enum Kind {
+        /** Ignore file located outside of the project, i.e. global gitignore. */
+        OUTER,
+
+        /** Repository exclude file, i.e. <code>.git/info/exclude</code>. */
+        EXCLUDE,
+
+        /** Regular ignore file located in the node's directory. */
+        LOCAL
+    }
+
+    /** Single ignore file attached to the {@link Node}. */
+    public static class Source {
+        /** Indexed ignore file entries. */
+        @Nonnull
+        private final IgnoreEntryOccurrence occurrence;
+
+        /** Ignore file type. */
+        @Nonnull
+        private final IgnoreFileType fileType;
+
+        /** Source kind. */
+        @Nonnull
+        private final Kind kind;
+
+        /** Position of the {@link #fileType} on the languages list. */
+        private final int typeOrder;
+
+        /**
+         * Constructor.
+         *
+         * @param occurrence indexed entries
+         * @param fileType   ignore file type
+         * @param kind       source kind
+         * @param typeOrder  position of the file type on the languages list
+         */
+        Source(@Nonnull IgnoreEntryOccurrence occurrence, @Nonnull IgnoreFileType fileType, @Nonnull Kind kind,
+               int typeOrder) {
+            this.occurrence = occurrence;
+            this.fileType = fileType;
+            this.kind = kind;
+            this.typeOrder = typeOrder;
+        }
+
+        /**
+         * Returns indexed ignore file entries.
+         *
+         * @return entries
+         */
+        @Nonnull
+        public IgnoreEntryOccurrence getOccurrence() {
+            return occurrence;
+        }
+
+        /**
+         * Returns ignore file type.
+         *
+         * @return file type
+         */
+        @Nonnull
+        public IgnoreFileType getFileType() {
+            return fileType;
+        }
+
+        /**
+         * Returns source kind.
+         *
+         * @return kind
+         */
+        @Nonnull
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns position of the file type on the languages list.
+         *
+         * @return file type order
+         */
+        public int getTypeOrder() {
+            return typeOrder;
+        }
+    }
+
+    /** Trie node that holds all ignore files applied to the single directory. */
+    public static class Node {
+        /** Directory described by the node. */
+        @Nonnull
+        private final VirtualFile directory;
+
+        /** Ignore files sorted by their precedence - the last one wins. */
+        @Nonnull
+        private final List<Source> sources;
+
+        /** Nearest ancestor node. */
+        @Nullable
+        private Node parent;
+
+        /** Amount of the ancestor nodes. */
+        private int depth;
+
+        /**
+         * Constructor.
+         *
+         * @param directory node directory
+         * @param sources   ignore files
+         */
+        Node(@Nonnull VirtualFile directory, @Nonnull List<Source> sources) {
+            this.directory = directory;
+            this.sources = sources;
+        }
+
+        /**
+         * Returns directory described by the node.
+         *
+         * @return directory
+         */
+        @Nonnull
+        public VirtualFile getDirectory() {
+            return directory;
+        }
+
+        /**
+         * Returns ignore files sorted by their precedence.
+         *
+         * @return sources
+         */
+        @Nonnull
+        public List<Source> getSources() {
+            return sources;
+        }
+
+        /**
+         * Returns nearest ancestor node.
+         *
+         * @return parent node
+         */
+        @Nullable
+        public Node getParent() {
+            return parent;
+        }
+    }
+
+    /** {@link IgnoreRuleTrie} builder. */
+    public static class Builder {
+        /** Collected sources grouped by the directories. */
+        @Nonnull
+        private final Map<VirtualFile, List<Source>> sources = new HashMap<>();
+
+        /** Private constructor - use {@link IgnoreRuleTrie#builder()}. */
+        private Builder() {
+        }
+
+        /**
+         * Attaches ignore file entries to the given directory.
+         *
+         * @param directory  directory the rules are relative to
+         * @param occurrence indexed entries
+         * @param fileType   ignore file type
+         * @param kind       source kind
+         * @param typeOrder  position of the file type on the languages list
+         * @return builder
+         */
+        @Nonnull
+        public Builder add(@Nonnull VirtualFile directory, @Nonnull IgnoreEntryOccurrence occurrence,
+                           @Nonnull IgnoreFileType fileType, @Nonnull Kind kind, int typeOrder) {
+            sources.computeIfAbsent(directory, key -> new ArrayList<>())
+                .add(new Source(occurrence, fileType, kind, typeOrder));
+            return this;
+        }
+
+        /**
+         * Detaches the ignore file with the given URL from all directories.
+         *
+         * @param url ignore file URL
+         * @return directories the file was attached to
+         */
+        @Nonnull
+        public Set<VirtualFile> remove(@Nonnull String url) {
+            Set<VirtualFile> directories = new HashSet<>();
+            Iterator<Map.Entry<VirtualFile, List<Source>>> iterator = sources.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<VirtualFile, List<Source>> entry = iterator.next();
+                if (entry.getValue().removeIf(source -> url.equals(source.occurrence.getUrl()))) {
+                    directories.add(entry.getKey());
+                    if (entry.getValue().isEmpty()) {
+                        iterator.remove();
+                    }
+                }
+            }
+            return directories;
+        }
+
+        /**
+         * Builds immutable {@link IgnoreRuleTrie}. Sources of every node are sorted with their {@link Kind}, language
+         * order and URL, so the result does not depend on the index iteration order.
+         *
+         * @return trie
+         */
+        @Nonnull
+        public IgnoreRuleTrie build() {
+            if (sources.isEmpty()) {
+                return EMPTY;
+            }
+
+            Comparator<Source> comparator = Comparator.<Source, Kind>comparing(source -> source.kind)
+                .thenComparingInt(source -> source.typeOrder)
+                .thenComparing(source -> source.occurrence.getUrl());
+
+            Map<VirtualFile, Node> nodes = new HashMap<>(sources.size());
+            for (Map.Entry<VirtualFile, List<Source>> entry : sources.entrySet()) {
+                List<Source> list = new ArrayList<>(entry.getValue());
+                list.sort(comparator);
+                nodes.put(entry.getKey(), new Node(entry.getKey(), Collections.unmodifiableList(list)));
+            }
+
+            for (Node node : nodes.values()) {
+                for (VirtualFile directory = node.directory.getParent(); directory != null;
+                     directory = directory.getParent()) {
+                    Node parent = nodes.get(directory);
+                    if (parent != null) {
+                        node.parent = parent;
+                        break;
+                    }
+                }
+            }
+            for (Node node : nodes.values()) {
+                for (Node parent = node.parent; parent != null; parent = parent.parent) {
+                    node.depth++;
+                }
+            }
+
+            return new IgnoreRuleTrie(nodes);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.util.WeakValueCache;
+
+import java.util.List;
+
+/**
+ * Application-level cache of the compiled {@link IgnoreRuleSet} instances keyed by the content hash of their rules.
+ * Ignore files with the same entries - in the same checkout, in the monorepo modules or in many projects opened at once
+ * - share a single compiled set. Sets are held weakly, so they are dropped when no ignore file uses them anymore.
+ *
+ * @since 3.2
+ */
+public final class RuleSetCache {
+    /** Compiled rule sets. */
+    @Nonnull
+    private static final WeakValueCache<Key, IgnoreRuleSet> CACHE = new WeakValueCache<>();
+
+    /** Private constructor to prevent creating {@link RuleSetCache} instance. */
+    private RuleSetCache() {
+    }
+
+    /**
+     * Returns compiled rule set for the given rules, compiling it if no equal rules are in use.
+     *
+     * @param rules rules in the file order
+     * @return compiled rule set
+     */
+    @Nonnull
+    public static IgnoreRuleSet get(@Nonnull List<IgnoreRule> rules) {
+        if (rules.isEmpty()) {
+            return IgnoreRuleSet.EMPTY;
+        }
+
+        IgnoreRuleSet ruleSet = CACHE.get(new Key(rules), key -> IgnoreRuleSet.compile(key.rules));
+        return ruleSet != null ? ruleSet : IgnoreRuleSet.compile(rules);
+    }
+
+    /**
+     * Returns amount of the lookups that reused a compiled set.
+     *
+     * @return hits count
+     */
+    public static long getHits() {
+        return CACHE.getHits();
+    }
+
+    /**
+     * Returns amount of the lookups that compiled a new set.
+     *
+     * @return misses count
+     */
+    public static long getMisses() {
+        return CACHE.getMisses();
+    }
+
+    /**
+     * Returns ratio of the lookups that reused a compiled set.
+     *
+     * @return hit rate between <code>0</code> and <code>1</code>
+     */
+    public static double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double)hits / total;
+    }
+
+    /**
+     * Returns amount of the compiled sets in use.
+     *
+     * @return sets count
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Returns amount of the rules held by the compiled sets in use.
+     *
+     * @return rules count
+     */
+    public static int getRuleCount() {
+        int count = 0;
+        for (IgnoreRuleSet ruleSet : CACHE.values()) {
+            count += ruleSet.getRules().size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns amount of the compiled sets dropped after no ignore file used them anymore.
+     *
+     * @return collected sets count
+     */
+    public static long getCollected() {
+        return CACHE.getCollected();
+    }
+
+    /** Cache key - rules with the 64-bit hash of their normalized values, syntaxes and negations. */
+    private static final class Key {
+        /** Rules in the file order. */
+        @Nonnull
+        private final List<IgnoreRule> rules;
+
+        /** Content hash of the rules. */
+        private final long hash;
+
+        /**
+         * Constructor.
+         *
+         * @param rules rules in the file order
+         */
+        Key(@Nonnull List<IgnoreRule> rules) {
+            this.rules = rules;
+
+            long hash = 0xcbf29ce484222325L;
+            for (IgnoreRule rule : rules) {
+                String value = rule.getValue();
+                for (int i = 0; i < value.length(); i++) {
+                    hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+                }
+                hash = (hash ^ (rule.getSyntax().ordinal() << 1 | (rule.isNegated() ? 1 : 0))) * 0x100000001b3L;
+                hash = (hash ^ '\n') * 0x100000001b3L;
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            return obj instanceof Key key && hash == key.hash && rules.equals(key.rules);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import consulo.versionControlSystem.root.VcsRoot;
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
+import mobi.hsz.idea.gitignore.util.Utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable state used to resolve ignored statuses - enabled languages, their outer files, VCS roots and the compiled
+ * {@link IgnoreRuleTrie}. Snapshot is published as a whole, so readers never see a partially updated state, and every
+ * snapshot carries the version it was built for.
+ *
+ * @since 3.2
+ */
+public final class RuleSnapshot {
+    /** Empty snapshot instance. */
+    public static final RuleSnapshot EMPTY = new RuleSnapshot(0, IgnoreRuleTrie.EMPTY, Set.of(), Map.of(), List.of());
+
+    /** Version of the rules state the snapshot was built for. */
+    private final long version;
+
+    /** Compiled rules. */
+    @Nonnull
+    private final IgnoreRuleTrie trie;
+
+    /** Enabled ignore file types. */
+    @Nonnull
+    private final Set<IgnoreFileType> enabledTypes;
+
+    /** Outer files of the enabled ignore file types. */
+    @Nonnull
+    private final Map<IgnoreFileType, Set<VirtualFile>> outerFiles;
+
+    /** VCS roots of the project. */
+    @Nonnull
+    private final List<VcsRoot> vcsRoots;
+
+    /**
+     * Constructor.
+     *
+     * @param version      rules state version
+     * @param trie         compiled rules
+     * @param enabledTypes enabled ignore file types
+     * @param outerFiles   outer files of the enabled ignore file types
+     * @param vcsRoots     VCS roots of the project
+     */
+    public RuleSnapshot(long version, @Nonnull IgnoreRuleTrie trie, @Nonnull Collection<IgnoreFileType> enabledTypes,
+                        @Nonnull Map<IgnoreFileType, ? extends Collection<VirtualFile>> outerFiles,
+                        @Nonnull Collection<VcsRoot> vcsRoots) {
+        Map<IgnoreFileType, Set<VirtualFile>> outerFilesCopy = new HashMap<>();
+        for (Map.Entry<IgnoreFileType, ? extends Collection<VirtualFile>> entry : outerFiles.entrySet()) {
+            outerFilesCopy.put(entry.getKey(), Set.copyOf(entry.getValue()));
+        }
+
+        this.version = version;
+        this.trie = trie;
+        this.enabledTypes = Set.copyOf(enabledTypes);
+        this.outerFiles = Map.copyOf(outerFilesCopy);
+        this.vcsRoots = List.copyOf(vcsRoots);
+    }
+
+    /**
+     * Creates a copy of the snapshot with the given rules, used when only some of the ignore files changed.
+     *
+     * @param version rules state version
+     * @param trie    compiled rules
+     * @return updated snapshot
+     */
+    @Nonnull
+    public RuleSnapshot withTrie(long version, @Nonnull IgnoreRuleTrie trie) {
+        return new RuleSnapshot(version, trie, enabledTypes, outerFiles, vcsRoots);
+    }
+
+    /**
+     * Returns version of the rules state the snapshot was built for.
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns compiled rules.
+     *
+     * @return rule trie
+     */
+    @Nonnull
+    public IgnoreRuleTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * Checks if given ignore file type is enabled.
+     *
+     * @param fileType ignore file type
+     * @return file type is enabled
+     */
+    public boolean isEnabled(@Nonnull IgnoreFileType fileType) {
+        return enabledTypes.contains(fileType);
+    }
+
+    /**
+     * Checks if given file is an outer file of the ignore file type.
+     *
+     * @param fileType ignore file type
+     * @param file     file to check
+     * @return file is an outer file
+     */
+    public boolean isOuterFile(@Nonnull IgnoreFileType fileType, @Nonnull VirtualFile file) {
+        Set<VirtualFile> files = outerFiles.get(fileType);
+        return files != null && files.contains(file);
+    }
+
+    /**
+     * Returns outer files of the ignore file type.
+     *
+     * @param fileType ignore file type
+     * @return outer files
+     */
+    @Nonnull
+    public Set<VirtualFile> getOuterFiles(@Nonnull IgnoreFileType fileType) {
+        return outerFiles.getOrDefault(fileType, Set.of());
+    }
+
+    /**
+     * Returns VCS roots of the project.
+     *
+     * @return VCS roots
+     */
+    @Nonnull
+    public List<VcsRoot> getVcsRoots() {
+        return vcsRoots;
+    }
+
+    /**
+     * Checks if given directory is a VCS root.
+     *
+     * @param directory directory to check
+     * @return directory is a VCS root
+     */
+    public boolean isVcsRoot(@Nonnull VirtualFile directory) {
+        for (VcsRoot root : vcsRoots) {
+            if (directory.equals(root.getPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds {@link VirtualFile} directory of the innermost {@link VcsRoot} that contains passed file.
+     *
+     * @param file to check
+     * @return VCS root directory or <code>null</code>
+     */
+    @Nullable
+    public VirtualFile getVcsRootFor(@Nonnull VirtualFile file) {
+        for (int i = vcsRoots.size() - 1; i >= 0; i--) {
+            VirtualFile path = vcsRoots.get(i).getPath();
+            if (path != null && Utils.isUnder(file, path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import consulo.versionControlSystem.root.VcsRoot;
+import consulo.virtualFileSystem.VirtualFile;
+import consulo.virtualFileSystem.VirtualFileManager;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
+import mobi.hsz.idea.gitignore.indexing.IgnoreEntryOccurrence;
+import mobi.hsz.idea.gitignore.lang.IgnoreLanguage;
+import mobi.hsz.idea.gitignore.util.FileUrlCache;
+import mobi.hsz.idea.gitignore.util.Utils;
+import mobi.hsz.idea.gitignore.util.VarInt;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Persistent copy of the {@link RuleSnapshot} stored between the IDE sessions. Every ignore file is stored with its
+ * timestamp, length and content hash, so the snapshot can be verified against the VFS and used before the indexes are
+ * ready. Names of the ignored top-level directories of the project are stored as well.
+ *
+ * @since 3.2
+ */
+public final class StartupSnapshot {
+    /** Current format version. Has to be increased if the stored data changes. */
+    private static final int VERSION = 2;
+
+    /** Stored ignore files. */
+    @Nonnull
+    private final List<Entry> entries;
+
+    /** Names of the ignored directories located in the project's base directory. */
+    @Nonnull
+    private final Set<String> ignoredDirectories;
+
+    /**
+     * Constructor.
+     *
+     * @param entries            stored ignore files
+     * @param ignoredDirectories names of the ignored top-level directories
+     */
+    private StartupSnapshot(@Nonnull List<Entry> entries, @Nonnull Set<String> ignoredDirectories) {
+        this.entries = entries;
+        this.ignoredDirectories = ignoredDirectories;
+    }
+
+    /**
+     * Creates snapshot of the given rules state. Ignore files are resolved with the given cache and content hashes of
+     * the files which timestamp and length did not change since the previous snapshot are reused, so only the touched
+     * files are read.
+     *
+     * @param snapshot           rules state
+     * @param ignoredDirectories names of the ignored top-level directories
+     * @param previous           previous snapshot or <code>null</code>
+     * @param cache              URL cache
+     * @return startup snapshot
+     */
+    @Nonnull
+    public static StartupSnapshot create(@Nonnull RuleSnapshot snapshot, @Nonnull Collection<String> ignoredDirectories,
+                                         @Nullable StartupSnapshot previous, @Nonnull FileUrlCache cache) {
+        Map<String, Entry> previousEntries = new HashMap<>();
+        if (previous != null) {
+            for (Entry entry : previous.entries) {
+                previousEntries.put(entry.occurrence.getUrl(), entry);
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        for (IgnoreRuleTrie.Node node : snapshot.getTrie().getNodes()) {
+            for (IgnoreRuleTrie.Source source : node.getSources()) {
+                VirtualFile file = source.getOccurrence().getFile(cache);
+                if (file == null || !file.isValid()) {
+                    continue;
+                }
+
+                long timeStamp = file.getTimeStamp();
+                long length = file.getLength();
+                Entry entry = previousEntries.get(source.getOccurrence().getUrl());
+                long hash = entry != null && entry.timeStamp == timeStamp && entry.length == length
+                    ? entry.hash
+                    : Utils.getContentHash(file);
+
+                entries.add(new Entry(
+                    source.getFileType().getLanguageName(),
+                    source.getKind(),
+                    source.getTypeOrder(),
+                    node.getDirectory().getUrl(),
+                    timeStamp,
+                    length,
+                    hash,
+                    source.getOccurrence()
+                ));
+            }
+        }
+        return new StartupSnapshot(entries, Set.copyOf(ignoredDirectories));
+    }
+
+    /**
+     * Returns names of the ignored directories located in the project's base directory.
+     *
+     * @return directory names
+     */
+    @Nonnull
+    public Set<String> getIgnoredDirectories() {
+        return ignoredDirectories;
+    }
+
+    /**
+     * Restores {@link RuleSnapshot} from the stored entries. Ignore files are compared with their VFS state - if any of
+     * them is missing or its content has changed, whole snapshot is considered outdated.
+     *
+     * @param vcsRoots VCS roots of the project
+     * @return rules state or <code>null</code> if snapshot is outdated
+     */
+    @Nullable
+    public RuleSnapshot restore(@Nonnull Collection<VcsRoot> vcsRoots) {
+        VirtualFileManager manager = VirtualFileManager.getInstance();
+        IgnoreRuleTrie.Builder builder = IgnoreRuleTrie.builder();
+        Set<IgnoreFileType> enabledTypes = new HashSet<>();
+
+        for (Entry entry : entries) {
+            IgnoreFileType fileType = findFileType(entry.languageName);
+            VirtualFile file = manager.findFileByUrl(entry.occurrence.getUrl());
+            VirtualFile directory = manager.findFileByUrl(entry.directoryUrl);
+            if (fileType == null || file == null || directory == null || !entry.isUpToDate(file)) {
+                return null;
+            }
+
+            if (IgnoreBundle.ENABLED_LANGUAGES.get(fileType)) {
+                enabledTypes.add(fileType);
+                builder.add(directory, entry.occurrence, fileType, entry.kind, entry.typeOrder);
+            }
+        }
+
+        return new RuleSnapshot(0, builder.build(), enabledTypes, Map.of(), vcsRoots);
+    }
+
+    /**
+     * Saves snapshot to the given file. Snapshot is written to a temporary file first and moved to the target
+     * atomically, so an interrupted write never leaves a truncated file.
+     *
+     * @param path target file
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(@Nonnull Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            write(temp);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes snapshot to the given file.
+     *
+     * @param path target file
+     * @throws IOException if an I/O error occurs
+     */
+    private void write(@Nonnull Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(VERSION);
+            VarInt.write(out, entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.languageName);
+                out.writeByte(entry.kind.ordinal());
+                VarInt.write(out, entry.typeOrder);
+                out.writeUTF(entry.directoryUrl);
+                out.writeLong(entry.timeStamp);
+                out.writeLong(entry.length);
+                out.writeLong(entry.hash);
+                IgnoreEntryOccurrence.serialize(out, entry.occurrence);
+            }
+
+            VarInt.write(out, ignoredDirectories.size());
+            for (String name : ignoredDirectories) {
+                out.writeUTF(name);
+            }
+        }
+    }
+
+    /**
+     * Loads snapshot from the given file.
+     *
+     * @param path source file
+     * @return snapshot or <code>null</code> if file does not exist or cannot be read
+     */
+    @Nullable
+    public static StartupSnapshot load(@Nonnull Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+
+            IgnoreRuleTrie.Kind[] kinds = IgnoreRuleTrie.Kind.values();
+            int size = VarInt.read(in);
+            List<Entry> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String languageName = in.readUTF();
+                int kind = in.readUnsignedByte();
+                if (kind >= kinds.length) {
+                    return null;
+                }
+                entries.add(new Entry(
+                    languageName,
+                    kinds[kind],
+                    VarInt.read(in),
+                    in.readUTF(),
+                    in.readLong(),
+                    in.readLong(),
+                    in.readLong(),
+                    IgnoreEntryOccurrence.deserialize(in)
+                ));
+            }
+
+            int count = VarInt.read(in);
+            Set<String> ignoredDirectories = new HashSet<>(count);
+            for (int i = 0; i < count; i++) {
+                ignoredDirectories.add(in.readUTF());
+            }
+
+            return new StartupSnapshot(entries, ignoredDirectories);
+        }
+        catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds {@link IgnoreFileType} by its language name.
+     *
+     * @param languageName language name
+     * @return file type or <code>null</code>
+     */
+    @Nullable
+    private static IgnoreFileType findFileType(@Nonnull String languageName) {
+        for (IgnoreLanguage language : IgnoreBundle.LANGUAGES) {
+            IgnoreFileType type = language.getFileType();
+            if (type.getLanguageName().equals(languageName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /** Stored ignore file with its rules and the state it had when the snapshot was created. */
+    private static final class Entry {
+        /** Language name of the ignore file type. */
+        @Nonnull
+        private final String languageName;
+
+        /** Source kind. */
+        @Nonnull
+        private final IgnoreRuleTrie.Kind kind;
+
+        /** Position of the file type on the languages list. */
+        private final int typeOrder;
+
+        /** URL of the directory the rules are relative to. */
+        @Nonnull
+        private final String directoryUrl;
+
+        /** Ignore file timestamp. */
+        private final long timeStamp;
+
+        /** Ignore file length. */
+        private final long length;
+
+        /** Ignore file content hash. */
+        private final long hash;
+
+        /** Ignore file entries. */
+        @Nonnull
+        private final IgnoreEntryOccurrence occurrence;
+
+        /**
+         * Constructor.
+         *
+         * @param languageName language name of the ignore file type
+         * @param kind         source kind
+         * @param typeOrder    position of the file type on the languages list
+         * @param directoryUrl URL of the directory the rules are relative to
+         * @param timeStamp    ignore file timestamp
+         * @param length       ignore file length
+         * @param hash         ignore file content hash
+         * @param occurrence   ignore file entries
+         */
+        Entry(@Nonnull String languageName, @Nonnull IgnoreRuleTrie.Kind kind, int typeOrder,
+              @Nonnull String directoryUrl, long timeStamp, long length, long hash,
+              @Nonnull IgnoreEntryOccurrence occurrence) {
+            this.languageName = languageName;
+            this.kind = kind;
+            this.typeOrder = typeOrder;
+            this.directoryUrl = directoryUrl;
+            this.timeStamp = timeStamp;
+            this.length = length;
+            this.hash = hash;
+            this.occurrence = occurrence;
+        }
+
+        /**
+         * Checks if the ignore file still has the stored content. Timestamp and length are compared first, so the
+         * content is read only for the touched files.
+         *
+         * @param file ignore file
+         * @return file content is unchanged
+         */
+        boolean isUpToDate(@Nonnull VirtualFile file) {
+            if (file.getTimeStamp() == timeStamp && file.getLength() == length) {
+                return true;
+            }
+            return file.getLength() == length && Utils.getContentHash(file) == hash;
+        }
+    }
+}
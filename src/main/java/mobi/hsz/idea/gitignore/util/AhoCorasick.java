@@ -0,0 +1,221 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import jakarta.annotation.Nonnull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton built over the literal parts of many entries. A single scan of the path finds all contained
+ * literals and reports entries which parts are all present in the path - only those have to be checked with the full
+ * matcher.
+ *
+ * @since 3.2
+ */
+public final class AhoCorasick {
+    /** Transition labels of every node. */
+    @Nonnull
+    private final char[][] labels;
+
+    /** Transition targets of every node, aligned with {@link #labels}. */
+    @Nonnull
+    private final int[][] targets;
+
+    /** Failure link of every node. */
+    @Nonnull
+    private final int[] failures;
+
+    /** Literals found when the node is reached, including the ones reached with failure links. */
+    @Nonnull
+    private final int[][] outputs;
+
+    /** Literal ids required by every entry. */
+    @Nonnull
+    private final int[][] entries;
+
+    /** Amount of the distinct literals. */
+    private final int literals;
+
+    /**
+     * Constructor.
+     *
+     * @param parts literal parts of every entry; entry without parts is always a candidate
+     */
+    public AhoCorasick(@Nonnull List<String[]> parts) {
+        Map<String, Integer> ids = new HashMap<>();
+        List<char[]> nodeLabels = new ArrayList<>();
+        List<int[]> nodeTargets = new ArrayList<>();
+        List<int[]> nodeOutputs = new ArrayList<>();
+        nodeLabels.add(new char[0]);
+        nodeTargets.add(new int[0]);
+        nodeOutputs.add(new int[0]);
+
+        this.entries = new int[parts.size()][];
+        for (int i = 0; i < parts.size(); i++) {
+            String[] entryParts = parts.get(i);
+            int[] required = new int[entryParts.length];
+            for (int j = 0; j < entryParts.length; j++) {
+                String part = entryParts[j];
+                Integer id = ids.get(part);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(part, id);
+
+                    int node = 0;
+                    for (int k = 0; k < part.length(); k++) {
+                        int next = find(nodeLabels.get(node), nodeTargets.get(node), part.charAt(k));
+                        if (next < 0) {
+                            next = nodeLabels.size();
+                            nodeLabels.add(new char[0]);
+                            nodeTargets.add(new int[0]);
+                            nodeOutputs.add(new int[0]);
+
+                            char[] labels = Arrays.copyOf(nodeLabels.get(node), nodeLabels.get(node).length + 1);
+                            int[] targets = Arrays.copyOf(nodeTargets.get(node), labels.length);
+                            labels[labels.length - 1] = part.charAt(k);
+                            targets[targets.length - 1] = next;
+                            nodeLabels.set(node, labels);
+                            nodeTargets.set(node, targets);
+                        }
+                        node = next;
+                    }
+
+                    int[] outputs = Arrays.copyOf(nodeOutputs.get(node), nodeOutputs.get(node).length + 1);
+                    outputs[outputs.length - 1] = id;
+                    nodeOutputs.set(node, outputs);
+                }
+                required[j] = id;
+            }
+            entries[i] = required;
+        }
+
+        this.literals = ids.size();
+        this.labels = nodeLabels.toArray(new char[0][]);
+        this.targets = nodeTargets.toArray(new int[0][]);
+        this.outputs = nodeOutputs.toArray(new int[0][]);
+        this.failures = new int[labels.length];
+
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < labels[node].length; i++) {
+                int child = targets[node][i];
+                int failure = failures[node];
+                int next;
+                while ((next = find(labels[failure], targets[failure], labels[node][i])) < 0 && failure != 0) {
+                    failure = failures[failure];
+                }
+                failures[child] = next >= 0 && next != child ? next : 0;
+
+                int[] inherited = outputs[failures[child]];
+                if (inherited.length > 0) {
+                    int[] merged = Arrays.copyOf(outputs[child], outputs[child].length + inherited.length);
+                    System.arraycopy(inherited, 0, merged, outputs[child].length, inherited.length);
+                    outputs[child] = merged;
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns amount of the entries.
+     *
+     * @return entries count
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Scans the path once and marks entries which literal parts are all contained in it.
+     *
+     * @param path path to scan
+     * @return candidate entries
+     */
+    @Nonnull
+    public BitSet candidates(@Nonnull CharSequence path) {
+        BitSet found = new BitSet(literals);
+        int count = 0;
+        int node = 0;
+        for (int i = 0, length = path.length(); i < length && count < literals; i++) {
+            char ch = path.charAt(i);
+            int next;
+            while ((next = find(labels[node], targets[node], ch)) < 0 && node != 0) {
+                node = failures[node];
+            }
+            node = Math.max(next, 0);
+            for (int id : outputs[node]) {
+                if (!found.get(id)) {
+                    found.set(id);
+                    count++;
+                }
+            }
+        }
+
+        BitSet result = new BitSet(entries.length);
+        for (int i = 0; i < entries.length; i++) {
+            boolean candidate = true;
+            for (int id : entries[i]) {
+                if (!found.get(id)) {
+                    candidate = false;
+                    break;
+                }
+            }
+            if (candidate) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds transition of the node for the given character.
+     *
+     * @param labels  node transition labels
+     * @param targets node transition targets
+     * @param ch      character
+     * @return target node or <code>-1</code>
+     */
+    private static int find(@Nonnull char[] labels, @Nonnull int[] targets, char ch) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == ch) {
+                return targets[i];
+            }
+        }
+        return -1;
+    }
+}
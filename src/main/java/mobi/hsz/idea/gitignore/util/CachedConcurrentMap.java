@@ -24,33 +24,63 @@
 
 package mobi.hsz.idea.gitignore.util;
 
-import consulo.util.collection.ContainerUtil;
+import consulo.application.ReadAction;
+import consulo.application.progress.ProgressManager;
+import consulo.application.util.concurrent.AppExecutorUtil;
 import jakarta.annotation.Nonnull;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 
 /**
- * {@link ConcurrentMap} wrapper with additional ability to cache values.
+ * {@link ConcurrentMap} wrapper with additional ability to cache values. Value of the key is fetched only once even if
+ * many threads ask for it at the same time - the first caller fetches it and the others wait for the result. Fetched
+ * values can be refreshed in the background while readers still get the previous one.
  *
  * @author Jakub Chrzanowski <jakub@hsz.mobi>
  * @since 2.1.0
  */
 public class CachedConcurrentMap<K, V> {
+    /** Interval of the cancellation checks while waiting for the value fetched by another thread. */
+    private static final long WAIT_INTERVAL = 10;
+
     /** Cache map. */
     @Nonnull
-    private final ConcurrentMap<K, V> map;
+    private final ConcurrentMap<K, Entry<V>> map = new ConcurrentHashMap<>();
 
     /** Data fetcher instance invoked if key is not filled with value. */
     @Nonnull
     private final DataFetcher<K, V> fetcher;
 
+    /** Amount of the fetches. */
+    @Nonnull
+    private final LongAdder loads = new LongAdder();
+
+    /** Total time spent on the fetches in nanoseconds. */
+    @Nonnull
+    private final LongAdder loadTime = new LongAdder();
+
+    /** Amount of the calls that waited for a value fetched by another thread. */
+    @Nonnull
+    private final LongAdder waits = new LongAdder();
+
+    /** Total time spent on waiting for the values fetched by other threads in nanoseconds. */
+    @Nonnull
+    private final LongAdder waitTime = new LongAdder();
+
     /**
      * Default constructor.
      *
      * @param fetcher data fetcher
      */
     private CachedConcurrentMap(@Nonnull DataFetcher<K, V> fetcher) {
-        this.map = ContainerUtil.createConcurrentWeakMap();
         this.fetcher = fetcher;
     }
 
@@ -66,16 +96,149 @@ public class CachedConcurrentMap<K, V> {
     }
 
     /**
-     * Returns value set under the given key or invokes {@link DataFetcher#fetch(Object)} if not.
+     * Returns value set under the given key or invokes {@link DataFetcher#fetch(Object)} if not. If the value is being
+     * fetched by another thread, waits for its result.
      *
      * @param key data key
      * @return value
      */
     public V get(@Nonnull K key) {
-        if (!map.containsKey(key)) {
-            map.put(key, fetcher.fetch(key));
+        while (true) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                Entry<V> created = new Entry<>();
+                entry = map.putIfAbsent(key, created);
+                if (entry == null) {
+                    return load(key, created);
+                }
+            }
+
+            if (entry.future.isDone()) {
+                if (!entry.future.isCompletedExceptionally()) {
+                    return entry.future.join();
+                }
+                map.remove(key, entry);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            try {
+                while (true) {
+                    ProgressManager.checkCanceled();
+                    try {
+                        return entry.future.get(WAIT_INTERVAL, TimeUnit.MILLISECONDS);
+                    }
+                    catch (TimeoutException ignored) {
+                    }
+                }
+            }
+            catch (ExecutionException ignored) {
+                map.remove(key, entry);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return fetcher.fetch(key);
+            }
+            finally {
+                waits.increment();
+                waitTime.add(System.nanoTime() - start);
+            }
         }
-        return map.get(key);
+    }
+
+    /**
+     * Fetches value for the given key and completes entry with it. Failed entry is removed, so the waiting threads
+     * and the next callers fetch the value again.
+     *
+     * @param key   data key
+     * @param entry entry to complete
+     * @return fetched value
+     */
+    private V load(@Nonnull K key, @Nonnull Entry<V> entry) {
+        try {
+            V value = fetch(key);
+            entry.future.complete(value);
+            return value;
+        }
+        catch (RuntimeException | Error e) {
+            map.remove(key, entry);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Invokes {@link DataFetcher#fetch(Object)} and records its time.
+     *
+     * @param key data key
+     * @return fetched value
+     */
+    private V fetch(@Nonnull K key) {
+        long start = System.nanoTime();
+        try {
+            return fetcher.fetch(key);
+        }
+        finally {
+            loads.increment();
+            loadTime.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Fetches value of the given key again in the background, inside the non-blocking read action that is restarted if
+     * a write action comes, so the fetcher sees the same state as the foreground callers. Readers get the previous
+     * value until the new one is ready. If the value was not fetched yet, it is removed, so the next reader fetches it.
+     *
+     * @param key data key
+     * @return future completed when the new value replaces the previous one
+     */
+    @Nonnull
+    public CompletableFuture<V> refresh(@Nonnull K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            if (entry != null) {
+                map.remove(key, entry);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<V> refreshed = new CompletableFuture<>();
+        CompletableFuture<V> running = entry.refresh.compareAndExchange(null, refreshed);
+        if (running != null) {
+            return running;
+        }
+
+        ReadAction.nonBlocking(() -> fetch(key))
+            .submit(AppExecutorUtil.getAppExecutorService())
+            .onSuccess(value -> {
+                Entry<V> fresh = new Entry<>();
+                fresh.future.complete(value);
+                map.replace(key, entry, fresh);
+                refreshed.complete(value);
+            })
+            .onError(e -> {
+                entry.refresh.set(null);
+                refreshed.completeExceptionally(e);
+            });
+        return refreshed;
+    }
+
+    /**
+     * Replaces value set under the given key with the remapped one. Does nothing if the value was not fetched yet.
+     * Value that is still being fetched is removed, so the next reader fetches it again.
+     *
+     * @param key      data key
+     * @param remapper function that computes new value from the current one
+     */
+    public void update(@Nonnull K key, @Nonnull BiFunction<K, V, V> remapper) {
+        this.map.computeIfPresent(key, (k, entry) -> {
+            if (!entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+                return null;
+            }
+
+            Entry<V> updated = new Entry<>();
+            updated.future.complete(remapper.apply(k, entry.future.join()));
+            return updated;
+        });
     }
 
     /**
@@ -92,6 +255,42 @@ public class CachedConcurrentMap<K, V> {
         this.map.clear();
     }
 
+    /**
+     * Returns amount of the fetches.
+     *
+     * @return fetches count
+     */
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns total time spent on the fetches.
+     *
+     * @return time in nanoseconds
+     */
+    public long getLoadTime() {
+        return loadTime.sum();
+    }
+
+    /**
+     * Returns amount of the calls that waited for a value fetched by another thread.
+     *
+     * @return waits count
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    /**
+     * Returns total time spent on waiting for the values fetched by other threads.
+     *
+     * @return time in nanoseconds
+     */
+    public long getWaitTime() {
+        return waitTime.sum();
+    }
+
     /** Fetcher interface. */
     public interface DataFetcher<K, V> {
         /**
@@ -102,4 +301,15 @@ public class CachedConcurrentMap<K, V> {
          */
         V fetch(@Nonnull K key);
     }
+
+    /** Cached value of the single key. */
+    private static final class Entry<V> {
+        /** Fetched value, not completed while it is being fetched. */
+        @Nonnull
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+
+        /** Running or finished background refresh of the value. */
+        @Nonnull
+        private final AtomicReference<CompletableFuture<V>> refresh = new AtomicReference<>();
+    }
 }
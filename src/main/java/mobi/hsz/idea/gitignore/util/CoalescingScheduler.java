@@ -0,0 +1,443 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import consulo.application.util.concurrent.AppExecutorUtil;
+import consulo.component.ProcessCanceledException;
+import consulo.logging.Logger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Coalescing work queue of the background tasks. Every {@link Task} has at most one pending instance - requests made
+ * before it runs are merged into it and postpone it by the task's delay, but no longer than {@link #MAX_DELAY_FACTOR}
+ * delays after the first request. Due tasks are started by their {@link Priority}, with bounded concurrency, and the
+ * same task never runs twice at once. Requests only update the pending instance, so event storms do not cancel and
+ * resubmit scheduled futures.
+ *
+ * @since 3.2
+ */
+public class CoalescingScheduler {
+    private static final Logger LOG = Logger.getInstance(CoalescingScheduler.class);
+
+    /** Maximum postponement of the pending task, in its delays counted from the first request. */
+    private static final int MAX_DELAY_FACTOR = 5;
+
+    /** Maximum amount of the tasks running at once. */
+    private final int maxConcurrency;
+
+    /** Executor that wakes the queue up when the tasks are due. */
+    @Nonnull
+    private final ScheduledExecutorService timer;
+
+    /** Executor that runs the tasks. */
+    @Nonnull
+    private final Executor executor;
+
+    /** Pending task instances. */
+    @Nonnull
+    private final Map<Task<?>, Pending<?>> pending = new HashMap<>();
+
+    /** Tasks that are running now. */
+    @Nonnull
+    private final Set<Task<?>> running = new HashSet<>();
+
+    /** Time of the earliest scheduled wake up, in nanoseconds. */
+    private long wakeUp = Long.MAX_VALUE;
+
+    /** Amount of the requests. */
+    @Nonnull
+    private final LongAdder requests = new LongAdder();
+
+    /** Amount of the requests merged into the pending instances. */
+    @Nonnull
+    private final LongAdder coalesced = new LongAdder();
+
+    /** Amount of the executed tasks. */
+    @Nonnull
+    private final LongAdder executed = new LongAdder();
+
+    /** Amount of the tasks that failed. */
+    @Nonnull
+    private final LongAdder failures = new LongAdder();
+
+    /** Total time between the first requests and the starts of the tasks, in nanoseconds. */
+    @Nonnull
+    private final LongAdder latency = new LongAdder();
+
+    /** Maximum time between the first request and the start of the task, in nanoseconds. */
+    @Nonnull
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * Constructor that uses application's executors.
+     *
+     * @param maxConcurrency maximum amount of the tasks running at once
+     */
+    public CoalescingScheduler(int maxConcurrency) {
+        this(maxConcurrency, AppExecutorUtil.getAppScheduledExecutorService(), AppExecutorUtil.getAppExecutorService());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxConcurrency maximum amount of the tasks running at once
+     * @param timer          executor that wakes the queue up
+     * @param executor       executor that runs the tasks
+     */
+    public CoalescingScheduler(int maxConcurrency, @Nonnull ScheduledExecutorService timer,
+                               @Nonnull Executor executor) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.timer = timer;
+        this.executor = executor;
+    }
+
+    /**
+     * Requests the task with its default delay.
+     *
+     * @param task     task to run
+     * @param argument task argument, merged with the argument of the pending instance
+     * @param <T>      argument type
+     */
+    public <T> void schedule(@Nonnull Task<T> task, @Nullable T argument) {
+        schedule(task, argument, task.delay);
+    }
+
+    /**
+     * Requests the task. If the task is already pending, arguments are merged and the pending instance is postponed.
+     *
+     * @param task     task to run
+     * @param argument task argument, merged with the argument of the pending instance
+     * @param delay    time to wait for the next requests, in milliseconds
+     * @param <T>      argument type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void schedule(@Nonnull Task<T> task, @Nullable T argument, int delay) {
+        requests.increment();
+        long now = System.nanoTime();
+        long due;
+        synchronized (this) {
+            Pending<T> current = (Pending<T>)pending.get(task);
+            if (current == null) {
+                current = new Pending<>(task, argument, now);
+                pending.put(task, current);
+                due = now + TimeUnit.MILLISECONDS.toNanos(delay);
+            }
+            else {
+                coalesced.increment();
+                current.argument = current.argument == null ? argument
+                    : argument == null ? current.argument : task.merge.apply(current.argument, argument);
+                long limit = current.requested + TimeUnit.MILLISECONDS.toNanos((long)task.delay * MAX_DELAY_FACTOR);
+                due = Math.min(Math.max(current.due, now + TimeUnit.MILLISECONDS.toNanos(delay)), limit);
+            }
+            current.due = due;
+            if (due >= wakeUp) {
+                return;
+            }
+            wakeUp = due;
+        }
+        timer.schedule(this::pump, Math.max(0, due - now), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Drops the pending instance of the task. Running instance is not interrupted.
+     *
+     * @param task task to cancel
+     */
+    public synchronized void cancel(@Nonnull Task<?> task) {
+        pending.remove(task);
+    }
+
+    /**
+     * Checks if the task is pending or running.
+     *
+     * @param task task to check
+     * @return task is pending or running
+     */
+    public synchronized boolean isScheduled(@Nonnull Task<?> task) {
+        return pending.containsKey(task) || running.contains(task);
+    }
+
+    /** Starts the due tasks, as many as the concurrency limit allows, and schedules the next wake up. */
+    private void pump() {
+        List<Pending<?>> ready = new ArrayList<>();
+        long next = Long.MAX_VALUE;
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (wakeUp <= now) {
+                wakeUp = Long.MAX_VALUE;
+            }
+
+            for (Pending<?> item : pending.values()) {
+                if (item.due <= now) {
+                    if (!running.contains(item.task)) {
+                        ready.add(item);
+                    }
+                }
+                else {
+                    next = Math.min(next, item.due);
+                }
+            }
+            ready.sort(Comparator.<Pending<?>, Priority>comparing(item -> item.task.priority)
+                .thenComparingLong(item -> item.requested));
+            if (ready.size() > maxConcurrency - running.size()) {
+                ready = new ArrayList<>(ready.subList(0, Math.max(0, maxConcurrency - running.size())));
+            }
+            for (Pending<?> item : ready) {
+                pending.remove(item.task);
+                running.add(item.task);
+            }
+
+            if (next < wakeUp) {
+                wakeUp = next;
+            }
+            else {
+                next = Long.MAX_VALUE;
+            }
+        }
+
+        if (next != Long.MAX_VALUE) {
+            timer.schedule(this::pump, Math.max(0, next - now), TimeUnit.NANOSECONDS);
+        }
+        for (Pending<?> item : ready) {
+            executor.execute(() -> execute(item));
+        }
+    }
+
+    /**
+     * Runs the task instance, updates the metrics and starts the tasks waiting for the free slot. Failures are logged,
+     * canceled tasks are not counted as failed and errors are rethrown after the slot is released.
+     *
+     * @param item task instance
+     */
+    private void execute(@Nonnull Pending<?> item) {
+        long waited = System.nanoTime() - item.requested;
+        latency.add(waited);
+        maxLatency.accumulateAndGet(waited, Math::max);
+        try {
+            item.run();
+        }
+        catch (ProcessCanceledException ignored) {
+            // canceled tasks, i.e. with expired read actions, are requested again by their owners if still needed
+        }
+        catch (RuntimeException e) {
+            failures.increment();
+            LOG.error("Task '" + item.task.getName() + "' failed", e);
+        }
+        catch (Error e) {
+            failures.increment();
+            throw e;
+        }
+        finally {
+            executed.increment();
+            synchronized (this) {
+                running.remove(item.task);
+            }
+            pump();
+        }
+    }
+
+    /**
+     * Returns amount of the requests.
+     *
+     * @return requests count
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns amount of the requests merged into the pending instances.
+     *
+     * @return coalesced requests count
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns amount of the executed tasks.
+     *
+     * @return executed tasks count
+     */
+    public long getExecutedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Returns amount of the tasks that failed.
+     *
+     * @return failed tasks count
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Returns total time between the first requests and the starts of the tasks.
+     *
+     * @return queue latency in nanoseconds
+     */
+    public long getTotalLatency() {
+        return latency.sum();
+    }
+
+    /**
+     * Returns maximum time between the first request and the start of the task.
+     *
+     * @return queue latency in nanoseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Returns amount of the pending tasks.
+     *
+     * @return pending tasks count
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Priority of the due tasks - tasks with the higher priority are started first. */
+    public enum Priority {
+        /** Task that blocks the other ones, i.e. rebuilding the rules. */
+        HIGH,
+
+        /** Regular task. */
+        NORMAL,
+
+        /** Expensive task that can wait, i.e. calling external processes. */
+        LOW
+    }
+
+    /**
+     * Task that can be requested in {@link CoalescingScheduler}. Tasks are compared by identity.
+     *
+     * @param <T> argument type
+     */
+    public static final class Task<T> {
+        /** Task name. */
+        @Nonnull
+        private final String name;
+
+        /** Task priority. */
+        @Nonnull
+        private final Priority priority;
+
+        /** Default time to wait for the next requests, in milliseconds. */
+        private final int delay;
+
+        /** Function that merges arguments of the coalesced requests. */
+        @Nonnull
+        private final BinaryOperator<T> merge;
+
+        /** Task body. */
+        @Nonnull
+        private final Consumer<T> action;
+
+        /**
+         * Constructor.
+         *
+         * @param name     task name
+         * @param priority task priority
+         * @param delay    default time to wait for the next requests, in milliseconds
+         * @param merge    function that merges arguments of the coalesced requests
+         * @param action   task body, gets the merged argument
+         */
+        public Task(@Nonnull String name, @Nonnull Priority priority, int delay, @Nonnull BinaryOperator<T> merge,
+                    @Nonnull Consumer<T> action) {
+            this.name = name;
+            this.priority = priority;
+            this.delay = delay;
+            this.merge = merge;
+            this.action = action;
+        }
+
+        /**
+         * Returns task name.
+         *
+         * @return name
+         */
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * Pending instance of the task.
+     *
+     * @param <T> argument type
+     */
+    private static final class Pending<T> {
+        /** Requested task. */
+        @Nonnull
+        private final Task<T> task;
+
+        /** Merged argument. */
+        @Nullable
+        private T argument;
+
+        /** Time of the first request, in nanoseconds. */
+        private final long requested;
+
+        /** Time the task is due, in nanoseconds. */
+        private long due;
+
+        /**
+         * Constructor.
+         *
+         * @param task      requested task
+         * @param argument  task argument
+         * @param requested time of the first request
+         */
+        Pending(@Nonnull Task<T> task, @Nullable T argument, long requested) {
+            this.task = task;
+            this.argument = argument;
+            this.requested = requested;
+        }
+
+        /** Runs the task with the merged argument. */
+        void run() {
+            task.action.accept(argument);
+        }
+    }
+}
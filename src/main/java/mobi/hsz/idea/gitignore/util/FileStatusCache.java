@@ -0,0 +1,248 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import consulo.virtualFileSystem.VirtualFile;
+import consulo.virtualFileSystem.VirtualFileWithId;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of the ignored statuses keyed by the {@link VirtualFileWithId#getId()} identifiers. Every slot of the primitive
+ * array keeps the status together with the generation it was computed in - statuses computed before the last
+ * {@link #invalidateAll()} are outdated, so all of them are invalidated at once without touching the array.
+ * Subtrees are invalidated with {@link #invalidateUnder(VirtualFile)}, which records the generation of the directory
+ * and outdates statuses of the files located under it. Single files are invalidated by the VFS events.
+ * Files without identifiers are not cached.
+ *
+ * @since 3.2
+ */
+public class FileStatusCache {
+    /** Status is not known. */
+    private static final int UNKNOWN = 0;
+
+    /** File is not ignored. */
+    private static final int NOT_IGNORED = 1;
+
+    /** File is ignored. */
+    private static final int IGNORED = 2;
+
+    /** Bits used by the status in the slot. */
+    private static final int STATUS_BITS = 2;
+
+    /** Mask of the status in the slot. */
+    private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+
+    /** Maximum generation that fits in the slot. */
+    private static final int MAX_GENERATION = -1 >>> STATUS_BITS;
+
+    /** Maximum amount of the invalidated subtrees. Whole cache is invalidated above the limit. */
+    private static final int MAX_SUBTREES = 64;
+
+    /** Current generation, never <code>0</code> so the empty slots are always unknown. */
+    @Nonnull
+    private final AtomicInteger generation = new AtomicInteger(1);
+
+    /** Generation of the last {@link #invalidateAll()} call. Statuses computed before it are outdated. */
+    private volatile int validGeneration = 1;
+
+    /** Invalidated subtrees mapped with the generations of their invalidation. */
+    @Nonnull
+    private final ConcurrentMap<VirtualFile, Integer> subtrees = new ConcurrentHashMap<>();
+
+    /** Statuses with their generations indexed by the file id. */
+    @Nonnull
+    private volatile int[] slots = new int[1024];
+
+    /**
+     * Returns current generation. Statuses computed before the next invalidation should be stored with it.
+     *
+     * @return generation
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns cached status of the file.
+     *
+     * @param file file to check
+     * @return {@link Boolean#TRUE} if ignored, {@link Boolean#FALSE} if not ignored or <code>null</code> if unknown
+     */
+    @Nullable
+    public Boolean get(@Nonnull VirtualFile file) {
+        int id = getId(file);
+        int[] slots = this.slots;
+        if (id <= 0 || id >= slots.length) {
+            return null;
+        }
+
+        int slot = slots[id];
+        if (slot == UNKNOWN || isOutdated(file, slot >>> STATUS_BITS)) {
+            return null;
+        }
+
+        switch (slot & STATUS_MASK) {
+
+            case IGNORED:
+                return Boolean.TRUE;
+            case NOT_IGNORED:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Stores status of the file computed in the given generation. Status is dropped if the whole cache was invalidated
+     * in the meantime and ignored by {@link #get(VirtualFile)} if the file's subtree was.
+     *
+     * @param file       file to store
+     * @param ignored    file is ignored
+     * @param generation generation obtained with {@link #getGeneration()} before computing the status
+     * @return stored status
+     */
+    public boolean set(@Nonnull VirtualFile file, boolean ignored, int generation) {
+        int id = getId(file);
+        if (id > 0 && generation >= validGeneration) {
+            ensureCapacity(id)[id] = (generation << STATUS_BITS) | (ignored ? IGNORED : NOT_IGNORED);
+        }
+        return ignored;
+    }
+
+    /**
+     * Drops status of the single file.
+     *
+     * @param file file to invalidate
+     */
+    public void invalidate(@Nonnull VirtualFile file) {
+        int id = getId(file);
+        int[] slots = this.slots;
+        if (id > 0 && id < slots.length) {
+            slots[id] = UNKNOWN;
+        }
+    }
+
+    /**
+     * Drops statuses of the given directory and all files located under it.
+     *
+     * @param directory root of the invalidated subtree
+     */
+    public synchronized void invalidateUnder(@Nonnull VirtualFile directory) {
+        if (subtrees.size() >= MAX_SUBTREES) {
+            invalidateAll();
+            return;
+        }
+        int next = nextGeneration();
+        if (next > 1) {
+            subtrees.put(directory, next);
+        }
+    }
+
+    /** Drops all statuses by starting the new generation. */
+    public synchronized void invalidateAll() {
+        validGeneration = nextGeneration();
+        subtrees.clear();
+    }
+
+    /**
+     * Starts the new generation. Statuses of all files are dropped if the generation does not fit in the slot anymore.
+     *
+     * @return new generation
+     */
+    private synchronized int nextGeneration() {
+        int next = generation.incrementAndGet();
+        if (next > MAX_GENERATION) {
+            Arrays.fill(slots, UNKNOWN);
+            subtrees.clear();
+            next = 1;
+            generation.set(next);
+            validGeneration = next;
+        }
+        return next;
+    }
+
+    /**
+     * Checks if status computed in the given generation was invalidated with the whole cache or with the subtree
+     * the file is located in.
+     *
+     * @param file       file to check
+     * @param generation generation of the status
+     * @return status is outdated
+     */
+    private boolean isOutdated(@Nonnull VirtualFile file, int generation) {
+        if (generation < validGeneration || generation > this.generation.get()) {
+            return true;
+        }
+        if (subtrees.isEmpty()) {
+            return false;
+        }
+        for (VirtualFile directory = file; directory != null; directory = directory.getParent()) {
+            Integer invalidated = subtrees.get(directory);
+            if (invalidated != null && generation < invalidated) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns slots array that is able to hold given id, growing it if needed.
+     *
+     * @param id file id
+     * @return slots array
+     */
+    @Nonnull
+    private int[] ensureCapacity(int id) {
+        int[] slots = this.slots;
+        if (id < slots.length) {
+            return slots;
+        }
+
+        synchronized (this) {
+            slots = this.slots;
+            if (id >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(id + 1, slots.length + (slots.length >> 1)));
+                this.slots = slots;
+            }
+            return slots;
+        }
+    }
+
+    /**
+     * Returns identifier of the file.
+     *
+     * @param file file
+     * @return file id or <code>0</code> if file has no id
+     */
+    private static int getId(@Nonnull VirtualFile file) {
+        return file instanceof VirtualFileWithId fileWithId ? fileWithId.getId() : 0;
+    }
+}
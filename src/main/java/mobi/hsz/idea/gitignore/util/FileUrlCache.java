@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import consulo.virtualFileSystem.VirtualFile;
+import consulo.virtualFileSystem.VirtualFileManager;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of the {@link VirtualFile} instances resolved from their URLs. Indexed values are deserialized again after
+ * every index cache drop, so resolving their URLs with {@link VirtualFileManager#findFileByUrl(String)} each time would
+ * parse them over and over. Entries are invalidated by the VFS delete, move and rename events.
+ *
+ * @since 3.2
+ */
+public class FileUrlCache {
+    /** Resolved files mapped with their URLs. */
+    @Nonnull
+    private final ConcurrentMap<String, VirtualFile> files = new ConcurrentHashMap<>();
+
+    /**
+     * Returns file for the given URL, resolving it with {@link VirtualFileManager} if it is not cached yet.
+     *
+     * @param url file URL
+     * @return file or <code>null</code> if it does not exist
+     */
+    @Nullable
+    public VirtualFile find(@Nonnull String url) {
+        VirtualFile file = files.get(url);
+        if (file != null && file.isValid()) {
+            return file;
+        }
+
+        file = url.isEmpty() ? null : VirtualFileManager.getInstance().findFileByUrl(url);
+        if (file != null) {
+            files.put(url, file);
+        }
+        else {
+            files.remove(url);
+        }
+        return file;
+    }
+
+    /**
+     * Drops the given file and all cached files located under it.
+     *
+     * @param file deleted, moved or renamed file
+     */
+    public void invalidate(@Nonnull VirtualFile file) {
+        files.values().removeIf(cached -> Utils.isUnder(cached, file));
+    }
+
+    /**
+     * Drops the given files and all cached files located under them in a single pass.
+     *
+     * @param changed deleted, moved or renamed files
+     */
+    public void invalidate(@Nonnull Collection<VirtualFile> changed) {
+        if (changed.isEmpty() || files.isEmpty()) {
+            return;
+        }
+        files.values().removeIf(cached -> {
+            for (VirtualFile file : changed) {
+                if (Utils.isUnder(cached, file)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /** Drops all cached files. */
+    public void clear() {
+        files.clear();
+    }
+}
@@ -47,14 +47,19 @@ import java.util.regex.PatternSyntaxException;
  */
 public class Glob {
     /**
-     * Cache map that holds processed regex statements to the glob rules.
+     * Cache that holds compiled regex shared by all projects while they are in use.
      */
-    private static final ConcurrentMap<String, String> GLOBS_CACHE = ContainerUtil.newConcurrentMap();
+    private static final WeakValueCache<String, Pattern> PATTERNS_CACHE = new WeakValueCache<>();
 
     /**
-     * Cache map that holds compiled regex.
+     * Cache that holds compiled {@link GlobMatcher} programs shared by all projects while they are in use.
      */
-    private static final ConcurrentMap<String, Pattern> PATTERNS_CACHE = ContainerUtil.newConcurrentMap();
+    private static final WeakValueCache<String, GlobMatcher> MATCHERS_CACHE = new WeakValueCache<>();
+
+    /**
+     * Cache that holds compiled {@link GlobMatcher} programs matching directory children.
+     */
+    private static final WeakValueCache<String, GlobMatcher> CHILDREN_MATCHERS_CACHE = new WeakValueCache<>();
 
     /**
      * Private constructor to prevent creating {@link Glob} instance.
@@ -236,6 +241,20 @@ public class Glob {
         return syntax.equals(IgnoreBundle.Syntax.GLOB) ? createRegex(rule, acceptChildren) : rule;
     }
 
+    /**
+     * Creates regex-free {@link GlobMatcher} using glob rule. Returns <code>null</code> if the rule cannot be matched
+     * without the regex engine - {@link #createPattern(String, IgnoreBundle.Syntax, boolean)} should be used then.
+     *
+     * @param glob           rule
+     * @param acceptChildren Matches directory children
+     * @return {@link GlobMatcher} instance or null if not supported
+     */
+    @Nullable
+    public static GlobMatcher createMatcher(@Nonnull String glob, boolean acceptChildren) {
+        WeakValueCache<String, GlobMatcher> cache = acceptChildren ? CHILDREN_MATCHERS_CACHE : MATCHERS_CACHE;
+        return cache.get(glob, key -> GlobMatcher.compile(key, acceptChildren));
+    }
+
     /**
      * Converts regex string to {@link Pattern} with caching.
      *
@@ -244,15 +263,14 @@ public class Glob {
      */
     @Nullable
     public static Pattern getPattern(@Nonnull String regex) {
-        try {
-            if (!PATTERNS_CACHE.containsKey(regex)) {
-                PATTERNS_CACHE.put(regex, Pattern.compile(regex));
+        return PATTERNS_CACHE.get(regex, key -> {
+            try {
+                return Pattern.compile(key);
             }
-            return PATTERNS_CACHE.get(regex);
-        }
-        catch (PatternSyntaxException e) {
-            return null;
-        }
+            catch (PatternSyntaxException e) {
+                return null;
+            }
+        });
     }
 
     /**
@@ -265,11 +283,6 @@ public class Glob {
     @Nonnull
     public static String createRegex(@Nonnull String glob, boolean acceptChildren) {
         glob = glob.trim();
-        String cached = GLOBS_CACHE.get(glob);
-        if (cached != null) {
-            return cached;
-        }
-
         StringBuilder sb = new StringBuilder("^");
         boolean escape = false, star = false, doubleStar = false, bracket = false;
         int beginIndex = 0;
@@ -426,16 +439,15 @@ public class Glob {
         }
 
         sb.append('$');
-        GLOBS_CACHE.put(glob, sb.toString());
-
         return sb.toString();
     }
 
     /**
-     * Clears {@link Glob#GLOBS_CACHE} cache.
+     * Clears {@link Glob#PATTERNS_CACHE} and the matchers caches.
      */
     public static void clearCache() {
-        GLOBS_CACHE.clear();
         PATTERNS_CACHE.clear();
+        MATCHERS_CACHE.clear();
+        CHILDREN_MATCHERS_CACHE.clear();
     }
 }
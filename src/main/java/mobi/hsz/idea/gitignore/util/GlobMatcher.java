@@ -0,0 +1,715 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regex-free matcher for the {@link mobi.hsz.idea.gitignore.IgnoreBundle.Syntax#GLOB} rules. The glob is compiled into
+ * a small program of path operations (literals, <code>*</code>, <code>**</code>, <code>?</code> and bracket classes)
+ * that follows exactly the translation done by {@link Glob#createRegex(String, boolean)}. The program is evaluated as
+ * a non-deterministic automaton with a bit mask of active states, so matching is linear, does not backtrack and does
+ * not allocate for programs shorter than 64 operations.
+ *
+ * @since 3.2
+ */
+public final class GlobMatcher {
+    /** Matches given character. */
+    private static final byte LITERAL = 0;
+
+    /** Matches any single character - <code>.</code>. */
+    private static final byte ANY_CHAR = 1;
+
+    /** Matches any single character but slash - <code>[^/]</code>. */
+    private static final byte SEGMENT_CHAR = 2;
+
+    /** Matches single character from the bracket class. */
+    private static final byte CLASS = 3;
+
+    /** Matches any string - <code>.*</code>. */
+    private static final byte ANY_STRING = 4;
+
+    /** Matches any string without slashes - <code>[^/]*</code>. */
+    private static final byte SEGMENT_STRING = 5;
+
+    /**
+     * Matches empty string or any string that ends with slash - <code>(?:[^/]*&#47;)*</code>. Always followed by
+     * {@link #DIRECTORIES_BODY}.
+     */
+    private static final byte DIRECTORIES = 6;
+
+    /** Continuation of the {@link #DIRECTORIES} operation which cannot be left without consuming slash. */
+    private static final byte DIRECTORIES_BODY = 9;
+
+    /** Matches optional slash - <code>/?</code>. */
+    private static final byte OPTIONAL_SLASH = 7;
+
+    /** Matches empty string or slash followed by any string - <code>(?:/.*)?</code>. Always followed by {@link #ANY_STRING}. */
+    private static final byte CHILDREN = 8;
+
+    /** Source glob. */
+    @Nonnull
+    private final String glob;
+
+    /** Program operations. */
+    @Nonnull
+    private final byte[] ops;
+
+    /** Characters for the {@link #LITERAL} operations. */
+    @Nonnull
+    private final char[] chars;
+
+    /** Character classes for the {@link #CLASS} operations. */
+    @Nonnull
+    private final CharClass[] classes;
+
+    /**
+     * Constructor.
+     *
+     * @param glob    source glob
+     * @param ops     program operations
+     * @param chars   literal characters
+     * @param classes character classes
+     */
+    private GlobMatcher(@Nonnull String glob, @Nonnull byte[] ops, @Nonnull char[] chars, @Nonnull CharClass[] classes) {
+        this.glob = glob;
+        this.ops = ops;
+        this.chars = chars;
+        this.classes = classes;
+    }
+
+    /**
+     * Compiles glob rule into the {@link GlobMatcher}. Returns <code>null</code> if the rule contains constructs that
+     * cannot be expressed without the regex engine (i.e. curly braces or nested classes) - such rules should be
+     * matched with the {@link java.util.regex.Pattern} created by {@link Glob#createPattern}.
+     *
+     * @param glob           rule
+     * @param acceptChildren matches directory children
+     * @return matcher or <code>null</code> if not supported
+     */
+    @Nullable
+    public static GlobMatcher compile(@Nonnull String glob, boolean acceptChildren) {
+        glob = glob.trim();
+        Program program = new Program();
+        boolean escape = false, star = false, doubleStar = false, bracket = false;
+        int beginIndex = 0;
+        int bracketStart = -1;
+
+        if (glob.startsWith(Constants.DOUBLESTAR)) {
+            program.add(DIRECTORIES, '*');
+            beginIndex = 2;
+            doubleStar = true;
+        }
+        else if (glob.startsWith("*/")) {
+            program.add(SEGMENT_STRING, '*');
+            beginIndex = 1;
+            star = true;
+        }
+        else if (glob.equals(Constants.STAR)) {
+            program.add(ANY_STRING, '*');
+        }
+        else if (glob.startsWith(Constants.STAR)) {
+            program.add(ANY_STRING, '?');
+        }
+        else if (glob.startsWith("/")) {
+            beginIndex = 1;
+        }
+        else {
+            int slashes = countSlashes(glob);
+            if (slashes == 0 || (slashes == 1 && glob.endsWith("/"))) {
+                program.add(DIRECTORIES, '*');
+            }
+        }
+
+        for (int i = beginIndex; i < glob.length(); i++) {
+            char ch = glob.charAt(i);
+            if (bracket && ch != ']') {
+                continue;
+            }
+            else if (doubleStar) {
+                doubleStar = false;
+                if (ch == '/') {
+                    program.add(DIRECTORIES, '?');
+                    continue;
+                }
+                else {
+                    program.add(SEGMENT_STRING, '?');
+                }
+            }
+
+            if (ch == '*') {
+                if (escape) {
+                    program.addLiteral('*');
+                    escape = false;
+                    star = false;
+                }
+                else if (star) {
+                    char prev = program.last;
+                    if (prev == '\0' || prev == '^' || prev == '/') {
+                        doubleStar = true;
+                    }
+                    else {
+                        program.add(SEGMENT_STRING, '?');
+                    }
+                    star = false;
+                }
+                else {
+                    star = true;
+                }
+                continue;
+            }
+            else if (star) {
+                program.add(SEGMENT_STRING, '?');
+                star = false;
+            }
+
+            switch (ch) {
+
+                case '\\':
+                    if (escape) {
+                        program.addLiteral('\\');
+                        escape = false;
+                    }
+                    else {
+                        escape = true;
+                    }
+                    break;
+
+                case '?':
+                    if (escape) {
+                        program.addLiteral('?');
+                        escape = false;
+                    }
+                    else {
+                        program.add(ANY_CHAR, '.');
+                    }
+                    break;
+
+                case '[':
+                    if (escape) {
+                        program.addLiteral('[');
+                        escape = false;
+                    }
+                    else {
+                        bracket = true;
+                        bracketStart = i + 1;
+                    }
+                    break;
+
+                case ']':
+                    if (bracket) {
+                        CharClass charClass = CharClass.parse(glob, bracketStart, i);
+                        if (charClass == null) {
+                            return null;
+                        }
+                        program.addClass(charClass);
+                    }
+                    else {
+                        program.addLiteral(']');
+                    }
+                    bracket = false;
+                    escape = false;
+                    break;
+
+                case '{':
+                case '}':
+                    return null;
+
+                default:
+                    escape = false;
+                    program.addLiteral(ch);
+
+            }
+        }
+
+        if (bracket) {
+            return null;
+        }
+
+        if (star || doubleStar) {
+            if (program.last == '/') {
+                if (acceptChildren) {
+                    program.add(ANY_CHAR, '.');
+                    program.add(ANY_STRING, '+');
+                }
+                else {
+                    program.add(SEGMENT_CHAR, ']');
+                    program.add(SEGMENT_STRING, '+');
+                    program.add(OPTIONAL_SLASH, '?');
+                }
+            }
+            else {
+                program.add(SEGMENT_STRING, '*');
+                program.add(OPTIONAL_SLASH, '?');
+            }
+        }
+        else {
+            if (program.last == '/') {
+                if (acceptChildren) {
+                    program.add(SEGMENT_STRING, '*');
+                }
+            }
+            else if (acceptChildren) {
+                program.add(CHILDREN, ')');
+                program.add(ANY_STRING, '?');
+            }
+            else {
+                program.add(OPTIONAL_SLASH, '?');
+            }
+        }
+
+        return program.build(glob);
+    }
+
+    /**
+     * Writes compiled program to the output stream, so the matcher can be restored with
+     * {@link #read(String, DataInput)} without parsing the glob again.
+     *
+     * @param out output stream
+     * @throws IOException I/O exception
+     */
+    public void write(@Nonnull DataOutput out) throws IOException {
+        VarInt.write(out, ops.length);
+        out.write(ops);
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] == LITERAL) {
+                out.writeChar(chars[i]);
+            }
+            else if (ops[i] == CLASS) {
+                out.writeBoolean(classes[i].negated);
+                VarInt.write(out, classes[i].ranges.length);
+                for (char ch : classes[i].ranges) {
+                    out.writeChar(ch);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads program written with {@link #write(DataOutput)}.
+     *
+     * @param glob source glob
+     * @param in   input stream
+     * @return restored matcher
+     * @throws IOException I/O exception or corrupted program
+     */
+    @Nonnull
+    public static GlobMatcher read(@Nonnull String glob, @Nonnull DataInput in) throws IOException {
+        byte[] ops = new byte[VarInt.read(in)];
+        in.readFully(ops);
+        char[] chars = new char[ops.length];
+        CharClass[] classes = new CharClass[ops.length];
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] < LITERAL || ops[i] > DIRECTORIES_BODY
+                || (ops[i] == DIRECTORIES) != (i + 1 < ops.length && ops[i + 1] == DIRECTORIES_BODY)) {
+                throw new IOException("Corrupted glob program: " + glob);
+            }
+            if (ops[i] == LITERAL) {
+                chars[i] = in.readChar();
+            }
+            else if (ops[i] == CLASS) {
+                boolean negated = in.readBoolean();
+                char[] ranges = new char[VarInt.read(in)];
+                for (int j = 0; j < ranges.length; j++) {
+                    ranges[j] = in.readChar();
+                }
+                classes[i] = new CharClass(negated, ranges);
+            }
+        }
+        return new GlobMatcher(glob, ops, chars, classes);
+    }
+
+    /**
+     * Returns source glob.
+     *
+     * @return glob
+     */
+    @Nonnull
+    public String getGlob() {
+        return glob;
+    }
+
+    /**
+     * Returns amount of the program operations. State with this index is the accepting one.
+     *
+     * @return operations count
+     */
+    int size() {
+        return ops.length;
+    }
+
+    /**
+     * Checks if the whole path matches the glob.
+     *
+     * @param path path to check
+     * @return path matches
+     */
+    public boolean matches(@Nonnull CharSequence path) {
+        return matches(path, 0, path.length());
+    }
+
+    /**
+     * Checks if the given fragment of the path matches the glob.
+     *
+     * @param path  path to check
+     * @param start fragment start, inclusive
+     * @param end   fragment end, exclusive
+     * @return fragment matches
+     */
+    public boolean matches(@Nonnull CharSequence path, int start, int end) {
+        return ops.length < Long.SIZE ? matchesShort(path, start, end) : matchesLong(path, start, end);
+    }
+
+    /**
+     * Evaluates program with the states kept in a single <code>long</code> mask.
+     *
+     * @param path  path to check
+     * @param start fragment start, inclusive
+     * @param end   fragment end, exclusive
+     * @return fragment matches
+     */
+    private boolean matchesShort(@Nonnull CharSequence path, int start, int end) {
+        long accept = 1L << ops.length;
+        long states = closure(1L);
+        for (int i = start; i < end && states != 0; i++) {
+            char ch = path.charAt(i);
+            long next = 0;
+            for (long active = states & ~accept; active != 0; active &= active - 1) {
+                int state = Long.numberOfTrailingZeros(active);
+                next |= (long)step(state, ch) << state;
+            }
+            states = closure(next);
+        }
+        return (states & accept) != 0;
+    }
+
+    /**
+     * Computes epsilon closure of the states mask.
+     *
+     * @param states active states
+     * @return states with all states reachable without consuming characters
+     */
+    private long closure(long states) {
+        for (int state = 0; state < ops.length; state++) {
+            if ((states & (1L << state)) != 0) {
+                int skip = skip(state);
+                if (skip > 0) {
+                    states |= 1L << (state + skip);
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Evaluates program with the states kept in a <code>long</code> array. Used for very long globs only.
+     *
+     * @param path  path to check
+     * @param start fragment start, inclusive
+     * @param end   fragment end, exclusive
+     * @return fragment matches
+     */
+    private boolean matchesLong(@Nonnull CharSequence path, int start, int end) {
+        int words = (ops.length >> 6) + 1;
+        long[] states = new long[words];
+        long[] next = new long[words];
+        states[0] = 1L;
+        closure(states);
+
+        for (int i = start; i < end; i++) {
+            char ch = path.charAt(i);
+            boolean any = false;
+            java.util.Arrays.fill(next, 0);
+            for (int state = 0; state < ops.length; state++) {
+                if ((states[state >> 6] & (1L << state)) != 0) {
+                    int targets = step(state, ch);
+                    for (int offset = 0; targets != 0; offset++, targets >>= 1) {
+                        if ((targets & 1) != 0) {
+                            next[(state + offset) >> 6] |= 1L << (state + offset);
+                            any = true;
+                        }
+                    }
+                }
+            }
+            if (!any) {
+                return false;
+            }
+            long[] tmp = states;
+            states = next;
+            next = tmp;
+            closure(states);
+        }
+        return (states[ops.length >> 6] & (1L << ops.length)) != 0;
+    }
+
+    /**
+     * Computes epsilon closure of the states array in place.
+     *
+     * @param states active states
+     */
+    private void closure(@Nonnull long[] states) {
+        for (int state = 0; state < ops.length; state++) {
+            if ((states[state >> 6] & (1L << state)) != 0) {
+                int skip = skip(state);
+                if (skip > 0) {
+                    states[(state + skip) >> 6] |= 1L << (state + skip);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns amount of states that can be skipped from the given state without consuming any character.
+     *
+     * @param state current state
+     * @return skipped states count or <code>0</code> if the state has to consume character
+     */
+    int skip(int state) {
+        switch (ops[state]) {
+            case ANY_STRING:
+            case SEGMENT_STRING:
+            case OPTIONAL_SLASH:
+                return 1;
+            case DIRECTORIES:
+            case CHILDREN:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Consumes character in the given state.
+     *
+     * @param state current state
+     * @param ch    consumed character
+     * @return bit mask of the target states relative to the current one - <code>1</code> stays in the current state,
+     * <code>2</code> moves to the next one and <code>4</code> skips the next one
+     */
+    int step(int state, char ch) {
+        switch (ops[state]) {
+            case LITERAL:
+                return chars[state] == ch ? 2 : 0;
+            case ANY_CHAR:
+                return 2;
+            case SEGMENT_CHAR:
+                return ch != '/' ? 2 : 0;
+            case CLASS:
+                return classes[state].contains(ch) ? 2 : 0;
+            case ANY_STRING:
+                return 1;
+            case SEGMENT_STRING:
+                return ch != '/' ? 1 : 0;
+            case DIRECTORIES:
+                return ch == '/' ? 6 : 2;
+            case DIRECTORIES_BODY:
+                return ch == '/' ? 3 : 1;
+            case OPTIONAL_SLASH:
+            case CHILDREN:
+                return ch == '/' ? 2 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Counts slashes in the given string.
+     *
+     * @param glob string to check
+     * @return slashes count
+     */
+    private static int countSlashes(@Nonnull String glob) {
+        int count = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == '/') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return glob;
+    }
+
+    /** Mutable program used while compiling the glob. */
+    private static class Program {
+        /** Operations. */
+        private final List<Byte> ops = new ArrayList<>();
+
+        /** Literal characters. */
+        private final StringBuilder chars = new StringBuilder();
+
+        /** Character classes. */
+        private final List<CharClass> classes = new ArrayList<>();
+
+        /**
+         * Last character of the equivalent regex produced by {@link Glob#createRegex(String, boolean)}. Required to
+         * follow exactly the same <code>**</code> detection rules.
+         */
+        private char last = '^';
+
+        /**
+         * Adds operation.
+         *
+         * @param op   operation
+         * @param last last character of the equivalent regex fragment
+         */
+        void add(byte op, char last) {
+            ops.add(op);
+            chars.append('\0');
+            classes.add(null);
+            this.last = last;
+            if (op == DIRECTORIES) {
+                add(DIRECTORIES_BODY, last);
+            }
+        }
+
+        /**
+         * Adds {@link #LITERAL} operation.
+         *
+         * @param ch literal character
+         */
+        void addLiteral(char ch) {
+            add(LITERAL, ch);
+            chars.setCharAt(chars.length() - 1, ch);
+        }
+
+        /**
+         * Adds {@link #CLASS} operation.
+         *
+         * @param charClass character class
+         */
+        void addClass(@Nonnull CharClass charClass) {
+            add(CLASS, ']');
+            classes.set(classes.size() - 1, charClass);
+        }
+
+        /**
+         * Creates immutable {@link GlobMatcher}.
+         *
+         * @param glob source glob
+         * @return matcher
+         */
+        @Nonnull
+        GlobMatcher build(@Nonnull String glob) {
+            byte[] result = new byte[ops.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ops.get(i);
+            }
+            return new GlobMatcher(glob, result, chars.toString().toCharArray(), classes.toArray(new CharClass[0]));
+        }
+    }
+
+    /** Bracket character class, i.e. <code>[a-z]</code> or <code>[^abc]</code>. */
+    private static final class CharClass {
+        /** Class is negated with the leading <code>^</code>. */
+        private final boolean negated;
+
+        /** Pairs of the inclusive ranges bounds. */
+        @Nonnull
+        private final char[] ranges;
+
+        /**
+         * Constructor.
+         *
+         * @param negated class is negated
+         * @param ranges  ranges bounds
+         */
+        private CharClass(boolean negated, @Nonnull char[] ranges) {
+            this.negated = negated;
+            this.ranges = ranges;
+        }
+
+        /**
+         * Parses bracket content with the regex character class semantics. Returns <code>null</code> for empty,
+         * nested, intersected or invalid classes.
+         *
+         * @param glob  source glob
+         * @param start content start, inclusive
+         * @param end   content end, exclusive
+         * @return character class or <code>null</code>
+         */
+        @Nullable
+        static CharClass parse(@Nonnull String glob, int start, int end) {
+            boolean negated = start < end && glob.charAt(start) == '^';
+            if (negated) {
+                start++;
+            }
+            if (start >= end) {
+                return null;
+            }
+
+            StringBuilder ranges = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                char ch = glob.charAt(i);
+                if (ch == '[' || (ch == '&' && i + 1 < end && glob.charAt(i + 1) == '&')) {
+                    return null;
+                }
+                if (ch == '\\') {
+                    if (++i >= end || Character.isLetterOrDigit(glob.charAt(i))) {
+                        return null;
+                    }
+                    ch = glob.charAt(i);
+                }
+
+                char to = ch;
+                if (i + 2 < end && glob.charAt(i + 1) == '-') {
+                    to = glob.charAt(i + 2);
+                    if (to == '\\' || to == '[' || to < ch) {
+                        return null;
+                    }
+                    i += 2;
+                }
+                ranges.append(ch).append(to);
+            }
+
+            return new CharClass(negated, ranges.toString().toCharArray());
+        }
+
+        /**
+         * Checks if the class contains given character.
+         *
+         * @param ch character to check
+         * @return class contains character
+         */
+        boolean contains(char ch) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ch >= ranges[i] && ch <= ranges[i + 1]) {
+                    return !negated;
+                }
+            }
+            return negated;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Multi-pattern matcher that combines programs of many {@link GlobMatcher} instances into one automaton. The automaton
+ * is determinized lazily - DFA states are created on the first use and their transitions for ASCII characters are
+ * cached - so one pass over the path reports the last glob that matches it.
+ *
+ * @since 3.2
+ */
+public final class GlobSetMatcher {
+    /** Limit of the cached DFA states. Transitions leading to new states are computed on the fly above the limit. */
+    private static final int MAX_STATES = 256;
+
+    /** Amount of characters which transitions are cached. */
+    private static final int ASCII = 128;
+
+    /** Combined globs in their original order. */
+    @Nonnull
+    private final GlobMatcher[] matchers;
+
+    /** Index of the glob that owns the combined state. */
+    @Nonnull
+    private final int[] owners;
+
+    /** Index of the first combined state of every glob. */
+    @Nonnull
+    private final int[] offsets;
+
+    /** Amount of <code>long</code> words needed to store all combined states. */
+    private final int words;
+
+    /** Interned DFA states. */
+    @Nonnull
+    private final ConcurrentMap<State, State> states = new ConcurrentHashMap<>();
+
+    /** Initial DFA state. */
+    @Nonnull
+    private final State initial;
+
+    /**
+     * Constructor.
+     *
+     * @param matchers globs to combine
+     */
+    private GlobSetMatcher(@Nonnull GlobMatcher[] matchers) {
+        this.matchers = matchers;
+        this.offsets = new int[matchers.length];
+
+        int size = 0;
+        for (int i = 0; i < matchers.length; i++) {
+            offsets[i] = size;
+            size += matchers[i].size() + 1;
+        }
+
+        this.owners = new int[size];
+        for (int i = 0; i < matchers.length; i++) {
+            Arrays.fill(owners, offsets[i], offsets[i] + matchers[i].size() + 1, i);
+        }
+
+        this.words = (size >> 6) + 1;
+        long[] bits = new long[words];
+        for (int offset : offsets) {
+            bits[offset >> 6] |= 1L << offset;
+        }
+        closure(bits);
+        this.initial = intern(bits);
+    }
+
+    /**
+     * Combines given globs.
+     *
+     * @param matchers globs to combine
+     * @return combined matcher
+     */
+    @Nonnull
+    public static GlobSetMatcher create(@Nonnull List<GlobMatcher> matchers) {
+        return new GlobSetMatcher(matchers.toArray(new GlobMatcher[0]));
+    }
+
+    /**
+     * Returns amount of the combined globs.
+     *
+     * @return globs count
+     */
+    public int size() {
+        return matchers.length;
+    }
+
+    /**
+     * Finds the last glob that matches whole path.
+     *
+     * @param path path to check
+     * @return index of the last matching glob or <code>-1</code> if none matches
+     */
+    public int lastMatch(@Nonnull CharSequence path) {
+        return lastMatch(path, 0, path.length());
+    }
+
+    /**
+     * Finds the last glob that matches given fragment of the path.
+     *
+     * @param path  path to check
+     * @param start fragment start, inclusive
+     * @param end   fragment end, exclusive
+     * @return index of the last matching glob or <code>-1</code> if none matches
+     */
+    public int lastMatch(@Nonnull CharSequence path, int start, int end) {
+        return lastMatch(path, start, end, false);
+    }
+
+    /**
+     * Finds the last glob that matches given fragment of the path. Directory fragments are matched as if they were
+     * followed by the slash, so the caller does not have to copy the path to append it.
+     *
+     * @param path      path to check
+     * @param start     fragment start, inclusive
+     * @param end       fragment end, exclusive
+     * @param directory fragment points to the directory
+     * @return index of the last matching glob or <code>-1</code> if none matches
+     */
+    public int lastMatch(@Nonnull CharSequence path, int start, int end, boolean directory) {
+        State state = initial;
+        for (int i = start; i < end && !state.dead; i++) {
+            state = next(state, path.charAt(i));
+        }
+        if (directory && !state.dead) {
+            state = next(state, '/');
+        }
+        return state.match;
+    }
+
+    /**
+     * Returns DFA state reached from the given state after consuming character, using the cached transitions if
+     * possible.
+     *
+     * @param state current state
+     * @param ch    consumed character
+     * @return next state
+     */
+    @Nonnull
+    private State next(@Nonnull State state, char ch) {
+        State[] transitions = state.transitions;
+        State next = ch < ASCII && transitions != null ? transitions[ch] : null;
+        if (next == null) {
+            next = transition(state, ch);
+            if (ch < ASCII && transitions != null && next.interned) {
+                transitions[ch] = next;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Computes DFA state reached from the given state after consuming character.
+     *
+     * @param state current state
+     * @param ch    consumed character
+     * @return next state
+     */
+    @Nonnull
+    private State transition(@Nonnull State state, char ch) {
+        long[] next = new long[words];
+        long[] bits = state.bits;
+        for (int word = 0; word < words; word++) {
+            for (long active = bits[word]; active != 0; active &= active - 1) {
+                int global = (word << 6) + Long.numberOfTrailingZeros(active);
+                int owner = owners[global];
+                int local = global - offsets[owner];
+                if (local == matchers[owner].size()) {
+                    continue;
+                }
+
+                int targets = matchers[owner].step(local, ch);
+                for (int offset = 0; targets != 0; offset++, targets >>= 1) {
+                    if ((targets & 1) != 0) {
+                        next[(global + offset) >> 6] |= 1L << (global + offset);
+                    }
+                }
+            }
+        }
+        closure(next);
+        return intern(next);
+    }
+
+    /**
+     * Computes epsilon closure of the combined states in place.
+     *
+     * @param bits active states
+     */
+    private void closure(@Nonnull long[] bits) {
+        for (int global = 0; global < owners.length; global++) {
+            if ((bits[global >> 6] & (1L << global)) != 0) {
+                int owner = owners[global];
+                int local = global - offsets[owner];
+                if (local < matchers[owner].size()) {
+                    int skip = matchers[owner].skip(local);
+                    if (skip > 0) {
+                        bits[(global + skip) >> 6] |= 1L << (global + skip);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns cached DFA state for the given combined states or creates a new one.
+     *
+     * @param bits active states
+     * @return DFA state
+     */
+    @Nonnull
+    private State intern(@Nonnull long[] bits) {
+        int match = -1;
+        for (int i = 0; i < matchers.length; i++) {
+            int accept = offsets[i] + matchers[i].size();
+            if ((bits[accept >> 6] & (1L << accept)) != 0) {
+                match = i;
+            }
+        }
+
+        State state = new State(bits, match, states.size() < MAX_STATES);
+        if (!state.interned) {
+            State cached = states.get(state);
+            return cached != null ? cached : state;
+        }
+
+        State cached = states.putIfAbsent(state, state);
+        return cached != null ? cached : state;
+    }
+
+    /** Single DFA state - set of the active combined states. */
+    private static final class State {
+        /** Active combined states. */
+        @Nonnull
+        private final long[] bits;
+
+        /** Index of the last glob accepted in this state or <code>-1</code>. */
+        private final int match;
+
+        /** No state is active, so nothing can match anymore. */
+        private final boolean dead;
+
+        /** State is stored in the {@link #states} cache. */
+        private final boolean interned;
+
+        /** Cached transitions for the ASCII characters. */
+        @Nullable
+        private final State[] transitions;
+
+        /**
+         * Constructor.
+         *
+         * @param bits     active states
+         * @param match    last accepted glob
+         * @param interned state is cached
+         */
+        State(@Nonnull long[] bits, int match, boolean interned) {
+            this.bits = bits;
+            this.match = match;
+            this.interned = interned;
+            this.transitions = interned ? new State[ASCII] : null;
+
+            boolean dead = true;
+            for (long word : bits) {
+                if (word != 0) {
+                    dead = false;
+                    break;
+                }
+            }
+            this.dead = dead;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            return obj instanceof State state && Arrays.equals(bits, state.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bits);
+        }
+    }
+}
@@ -24,14 +24,13 @@
 
 package mobi.hsz.idea.gitignore.util;
 
-import consulo.util.collection.primitive.ints.IntMaps;
-import consulo.util.collection.primitive.ints.IntObjectMap;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -42,8 +41,46 @@ import java.util.regex.Pattern;
  * @since 1.3.1
  */
 public class MatcherUtil {
-    /** Stores calculated matching results. */
-    private final IntObjectMap<Boolean> cache = IntMaps.newIntObjectHashMap();
+    /** Default amount of the cached matching results. */
+    private static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /**
+     * Stores calculated matching results. Cache is a lock-free, direct-mapped table - every key has a single slot and
+     * storing a new result evicts the previous one, so the cache never exceeds its capacity.
+     */
+    @Nonnull
+    private final AtomicReferenceArray<Entry> cache;
+
+    /** Mask used to find the slot for the hash. */
+    private final int mask;
+
+    /** Amount of results served from the cache. */
+    @Nonnull
+    private final LongAdder hits = new LongAdder();
+
+    /** Amount of results calculated with regex. */
+    @Nonnull
+    private final LongAdder misses = new LongAdder();
+
+    /** Amount of cached results replaced with other ones. */
+    @Nonnull
+    private final LongAdder evictions = new LongAdder();
+
+    /** Constructor. */
+    public MatcherUtil() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity maximum amount of the cached results, rounded up to the power of two
+     */
+    public MatcherUtil(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.cache = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
 
     /**
      * Extracts alphanumeric parts from the regex pattern and checks if any of them is contained in the tested path.
@@ -58,26 +95,77 @@ public class MatcherUtil {
             return false;
         }
 
-        synchronized (cache) {
-            int hashCode = new HashCodeBuilder().append(pattern).append(path).toHashCode();
-
-            if (!cache.containsKey(hashCode)) {
-                String[] parts = getParts(pattern);
-                boolean result = false;
+        int hash = hash(pattern, path);
+        int slot = hash & mask;
+        Entry entry = cache.get(slot);
+        if (entry != null && entry.is(hash, pattern, path)) {
+            hits.increment();
+            return entry.result;
+        }
 
-                if (parts.length == 0 || matchAllParts(parts, path)) {
-                    try {
-                        result = pattern.matcher(path).find();
-                    } catch (StringIndexOutOfBoundsException ignored) {
-                    }
-                }
+        misses.increment();
+        String[] parts = getParts(pattern);
+        boolean result = false;
 
-                cache.put(hashCode, result);
-                return result;
+        if (parts.length == 0 || matchAllParts(parts, path)) {
+            try {
+                result = pattern.matcher(path).find();
+            } catch (StringIndexOutOfBoundsException ignored) {
             }
+        }
 
-            return cache.get(hashCode);
+        if (cache.getAndSet(slot, new Entry(hash, pattern, path, result)) != null) {
+            evictions.increment();
         }
+        return result;
+    }
+
+    /**
+     * Returns amount of results served from the cache.
+     *
+     * @return cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns amount of results calculated with regex because they were not cached.
+     *
+     * @return cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns amount of cached results replaced with other ones.
+     *
+     * @return cache evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns maximum amount of the cached results.
+     *
+     * @return cache capacity
+     */
+    public int getCapacity() {
+        return cache.length();
+    }
+
+    /**
+     * Calculates hash of the pattern and path pair, spread over the lower bits used for slot selection.
+     *
+     * @param pattern regex pattern
+     * @param path    checked path
+     * @return hash
+     */
+    private static int hash(@Nonnull Pattern pattern, @Nonnull String path) {
+        int hash = (pattern.pattern().hashCode() * 31 + pattern.flags()) * 31 + path.hashCode();
+        return hash ^ (hash >>> 16);
     }
 
     /**
@@ -169,4 +257,51 @@ public class MatcherUtil {
 
         return parts.toArray(new String[0]);
     }
+
+    /** Cached matching result with the exact key - pattern and path. */
+    private static final class Entry {
+        /** Precalculated hash of the key. */
+        private final int hash;
+
+        /** Matched pattern. */
+        @Nonnull
+        private final Pattern pattern;
+
+        /** Matched path. */
+        @Nonnull
+        private final String path;
+
+        /** Matching result. */
+        private final boolean result;
+
+        /**
+         * Constructor.
+         *
+         * @param hash    key hash
+         * @param pattern matched pattern
+         * @param path    matched path
+         * @param result  matching result
+         */
+        Entry(int hash, @Nonnull Pattern pattern, @Nonnull String path, boolean result) {
+            this.hash = hash;
+            this.pattern = pattern;
+            this.path = path;
+            this.result = result;
+        }
+
+        /**
+         * Checks if entry is stored for the given key.
+         *
+         * @param hash    key hash
+         * @param pattern pattern to check
+         * @param path    path to check
+         * @return entry has the same key
+         */
+        boolean is(int hash, @Nonnull Pattern pattern, @Nonnull String path) {
+            return this.hash == hash
+                && (this.pattern == pattern
+                || (this.pattern.flags() == pattern.flags() && this.pattern.pattern().equals(pattern.pattern())))
+                && this.path.equals(path);
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import consulo.virtualFileSystem.VirtualFile;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Tracker of the ignored statuses reported to the views. After the rules change, the reported statuses are computed
+ * again and compared with the previous ones, so only the files whose status really changed are refreshed instead of
+ * repainting every view. Tracking is limited - above the limit the tracker asks for the full refresh and starts over.
+ *
+ * @since 3.2
+ */
+public class StatusDeltaTracker {
+    /** Maximum amount of the tracked files. */
+    private final int maxFiles;
+
+    /** Maximum amount of the changed files that are refreshed one by one. */
+    private final int maxChanges;
+
+    /** Last reported statuses mapped with the files. */
+    @Nonnull
+    private final ConcurrentMap<VirtualFile, Boolean> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * Files which status changed in the pass of {@link #computeChanges(Predicate)} that did not complete, reported by
+     * the next pass.
+     */
+    @Nonnull
+    private final Set<VirtualFile> pending = ConcurrentHashMap.newKeySet();
+
+    /** Some statuses were not tracked because of the {@link #maxFiles} limit. */
+    private volatile boolean overflow;
+
+    /**
+     * Constructor.
+     *
+     * @param maxFiles   maximum amount of the tracked files
+     * @param maxChanges maximum amount of the changed files that are refreshed one by one
+     */
+    public StatusDeltaTracker(int maxFiles, int maxChanges) {
+        this.maxFiles = maxFiles;
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * Stores status reported for the file.
+     *
+     * @param file    checked file
+     * @param ignored file is ignored
+     */
+    public void record(@Nonnull VirtualFile file, boolean ignored) {
+        if (statuses.size() >= maxFiles && !statuses.containsKey(file)) {
+            overflow = true;
+            return;
+        }
+        statuses.put(file, ignored);
+    }
+
+    /**
+     * Computes statuses of the tracked files again and returns the files which status changed. Invalid files are not
+     * tracked anymore. If the evaluator throws, i.e. because the read action was canceled, changes found so far are
+     * kept and returned by the next call, so the pass can be restarted.
+     *
+     * @param evaluator function that computes the current status
+     * @return changed files or <code>null</code> if all statuses have to be refreshed
+     */
+    @Nullable
+    public List<VirtualFile> computeChanges(@Nonnull Predicate<VirtualFile> evaluator) {
+        if (overflow) {
+            reset();
+            return null;
+        }
+
+        for (Map.Entry<VirtualFile, Boolean> entry : statuses.entrySet()) {
+            VirtualFile file = entry.getKey();
+            boolean previous = entry.getValue();
+            if (!file.isValid()) {
+                statuses.remove(file, previous);
+                continue;
+            }
+
+            boolean current = evaluator.test(file);
+            statuses.put(file, current);
+            if (previous != current) {
+                pending.add(file);
+                if (pending.size() > maxChanges) {
+                    reset();
+                    return null;
+                }
+            }
+        }
+
+        List<VirtualFile> changed = new ArrayList<>(pending);
+        pending.removeAll(changed);
+        return changed;
+    }
+
+    /**
+     * Returns amount of the tracked files.
+     *
+     * @return tracked files count
+     */
+    public int size() {
+        return statuses.size();
+    }
+
+    /** Stops tracking all files. */
+    public void reset() {
+        overflow = false;
+        statuses.clear();
+        pending.clear();
+    }
+}
@@ -54,10 +54,12 @@ import mobi.hsz.idea.gitignore.command.CreateFileCommandAction;
 import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
 import mobi.hsz.idea.gitignore.lang.IgnoreLanguage;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.CRC32;
 
 import static consulo.ui.ex.SimpleTextAttributes.REGULAR_ATTRIBUTES;
 
@@ -307,6 +309,33 @@ public class Utils {
             StringUtil.startsWith(file.getUrl(), "temp://"));
     }
 
+    /**
+     * Computes CRC32 checksum of the file content.
+     *
+     * @param file file
+     * @return content checksum or <code>-1</code> if file cannot be read
+     */
+    public static long getContentHash(@Nonnull VirtualFile file) {
+        try {
+            return getContentHash(file.contentsToByteArray());
+        }
+        catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Computes CRC32 checksum of the content.
+     *
+     * @param content content
+     * @return content checksum
+     */
+    public static long getContentHash(@Nonnull byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
     /**
      * Creates and configures template preview editor.
      *
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import jakarta.annotation.Nonnull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * {@link VarInt} class that writes non-negative integers with the variable-length encoding - seven bits per byte,
+ * so small values used for counts and indexes take a single byte.
+ *
+ * @since 3.2
+ */
+public class VarInt {
+    /**
+     * Private constructor to prevent creating {@link VarInt} instance.
+     */
+    private VarInt() {
+    }
+
+    /**
+     * Writes non-negative integer to the output stream.
+     *
+     * @param out   output stream
+     * @param value value to write
+     * @throws IOException I/O exception
+     */
+    public static void write(@Nonnull DataOutput out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads non-negative integer written with {@link #write(DataOutput, int)}.
+     *
+     * @param in input stream
+     * @return read value
+     * @throws IOException I/O exception or malformed value
+     */
+    public static int read(@Nonnull DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Malformed variable-length integer");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Concurrent cache that holds its values weakly. Value stays cached as long as anything else references it, so equal
+ * values created in different places are shared and the cache does not grow beyond the values in use. Collected
+ * values are purged on the next access.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ * @since 3.2
+ */
+public final class WeakValueCache<K, V> {
+    /** Weakly referenced values mapped with their keys. */
+    @Nonnull
+    private final ConcurrentMap<K, Ref<K, V>> map = new ConcurrentHashMap<>();
+
+    /** Queue of the references to the collected values. */
+    @Nonnull
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+    /** Amount of the lookups that found a live value. */
+    @Nonnull
+    private final LongAdder hits = new LongAdder();
+
+    /** Amount of the lookups that had to create a value. */
+    @Nonnull
+    private final LongAdder misses = new LongAdder();
+
+    /** Amount of the values purged after they were collected. */
+    @Nonnull
+    private final LongAdder collected = new LongAdder();
+
+    /**
+     * Returns value cached under the given key or creates it with the factory. If another thread cached a value for
+     * the same key in the meantime, that one is returned, so all callers share a single instance.
+     *
+     * @param key     key
+     * @param factory value factory, may return <code>null</code> which is not cached
+     * @return value
+     */
+    @Nullable
+    public V get(@Nonnull K key, @Nonnull Function<K, V> factory) {
+        purge();
+
+        Ref<K, V> ref = map.get(key);
+        V value = ref != null ? ref.get() : null;
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+
+        misses.increment();
+        value = factory.apply(key);
+        if (value == null) {
+            return null;
+        }
+
+        Ref<K, V> created = new Ref<>(key, value, queue);
+        while (true) {
+            Ref<K, V> existing = map.putIfAbsent(key, created);
+            if (existing == null) {
+                return value;
+            }
+
+            V shared = existing.get();
+            if (shared != null) {
+                return shared;
+            }
+            if (map.replace(key, existing, created)) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Returns all live values.
+     *
+     * @return values
+     */
+    @Nonnull
+    public List<V> values() {
+        purge();
+        List<V> result = new ArrayList<>(map.size());
+        for (Ref<K, V> ref : map.values()) {
+            V value = ref.get();
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns amount of the cached entries.
+     *
+     * @return entries count
+     */
+    public int size() {
+        purge();
+        return map.size();
+    }
+
+    /**
+     * Returns amount of the lookups that found a live value.
+     *
+     * @return hits count
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns amount of the lookups that had to create a value.
+     *
+     * @return misses count
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns amount of the values purged after they were collected.
+     *
+     * @return collected values count
+     */
+    public long getCollected() {
+        return collected.sum();
+    }
+
+    /** Drops all cached values. */
+    public void clear() {
+        map.clear();
+        purge();
+    }
+
+    /** Removes entries of the collected values. */
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        Ref<K, V> ref;
+        while ((ref = (Ref<K, V>)queue.poll()) != null) {
+            if (map.remove(ref.key, ref)) {
+                collected.increment();
+            }
+        }
+    }
+
+    /** Weak reference to the value that remembers its key. */
+    private static final class Ref<K, V> extends WeakReference<V> {
+        /** Key of the value. */
+        @Nonnull
+        private final K key;
+
+        /**
+         * Constructor.
+         *
+         * @param key   key of the value
+         * @param value value
+         * @param queue reference queue
+         */
+        Ref(@Nonnull K key, @Nonnull V value, @Nonnull ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.indexing;
+
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.file.type.kind.GitFileType;
+import mobi.hsz.idea.gitignore.lang.kind.GitLanguage;
+import mobi.hsz.idea.gitignore.psi.IgnoreEntry;
+import mobi.hsz.idea.gitignore.rules.IgnoreRule;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Compares indexing throughput of the PSI visitor and {@link IgnoreEntryScanner} on the 10k-line files. */
+@Ignore("Performance benchmark, run manually")
+public class IgnoreEntryScannerBenchmark extends Common<IgnoreEntryScanner> {
+    private static final int LINES = 10000;
+
+    private static final int WARMUP = 5;
+
+    private static final int ITERATIONS = 20;
+
+    @Test
+    public void testThroughput() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            String entry = (i % 7 == 0 ? "!" : "") + "dir" + i + "/*.log";
+            builder.append(i % 100 == 0 ? "# comment " + i : entry).append('\n');
+        }
+        String content = builder.toString();
+
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(parse(content), IgnoreEntryScanner.scan(content, null, GitLanguage.INSTANCE));
+        }
+
+        long psi = 0;
+        long lexer = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            parse(content);
+            psi += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            IgnoreEntryScanner.scan(content, null, GitLanguage.INSTANCE);
+            lexer += System.nanoTime() - start;
+        }
+
+        System.out.printf("%d lines, average of %d runs: PSI %.2f ms (%.0f lines/s), lexer %.2f ms (%.0f lines/s)%n",
+            LINES, ITERATIONS, psi / 1e6 / ITERATIONS, LINES * 1e9 * ITERATIONS / psi,
+            lexer / 1e6 / ITERATIONS, LINES * 1e9 * ITERATIONS / lexer);
+        assertTrue("Lexer scanner is slower than PSI visitor", lexer < psi);
+    }
+
+    private List<IgnoreRule> parse(String content) {
+        myFixture.configureByText(GitFileType.INSTANCE, content);
+        List<IgnoreRule> rules = new ArrayList<>();
+        for (IgnoreEntry entry : getFixtureChildrenEntries()) {
+            rules.add(new IgnoreRule(entry.getValue(), entry.getSyntax(), entry.isNegated()));
+        }
+        return rules;
+    }
+}
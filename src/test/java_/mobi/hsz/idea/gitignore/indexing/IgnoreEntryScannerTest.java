@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.indexing;
+
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import mobi.hsz.idea.gitignore.file.type.IgnoreFileType;
+import mobi.hsz.idea.gitignore.file.type.kind.GitFileType;
+import mobi.hsz.idea.gitignore.file.type.kind.MercurialFileType;
+import mobi.hsz.idea.gitignore.lang.kind.GitLanguage;
+import mobi.hsz.idea.gitignore.lang.kind.MercurialLanguage;
+import mobi.hsz.idea.gitignore.psi.IgnoreEntry;
+import mobi.hsz.idea.gitignore.rules.IgnoreRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IgnoreEntryScannerTest extends Common<IgnoreEntryScanner> {
+    @Test
+    public void testPrivateConstructor() throws Exception {
+        privateConstructor(IgnoreEntryScanner.class);
+    }
+
+    @Test
+    public void testScan() {
+        String content = createIgnoreContent(
+            "### header", "## section", "# comment", "", "*.log", "!important.log", "/build/", "  dir/sub",
+            "fil[eE].txt", "syntax: regexp", "^foo.*$", "syntax:", "glob", "!#comment", "**/tmp/*"
+        );
+        List<IgnoreRule> rules = IgnoreEntryScanner.scan(content, null, MercurialLanguage.INSTANCE);
+        assertEquals(parse(MercurialFileType.INSTANCE, content), rules);
+        assertEquals(7, rules.size());
+        assertEquals(IgnoreBundle.Syntax.REGEXP, rules.get(0).getSyntax());
+        assertTrue(rules.get(1).isNegated());
+        assertEquals("important.log", rules.get(1).getValue());
+        assertEquals(IgnoreBundle.Syntax.REGEXP, rules.get(5).getSyntax());
+        assertEquals(IgnoreBundle.Syntax.GLOB, rules.get(6).getSyntax());
+    }
+
+    @Test
+    public void testLargeFile() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            String entry = (i % 7 == 0 ? "!" : "") + "dir" + i + "/*.log";
+            builder.append(i % 100 == 0 ? "# comment " + i : entry).append('\n');
+        }
+        String content = builder.toString();
+
+        List<IgnoreRule> scanned = IgnoreEntryScanner.scan(content, null, GitLanguage.INSTANCE);
+        assertEquals(parse(GitFileType.INSTANCE, content), scanned);
+        assertEquals(9900, scanned.size());
+    }
+
+    private List<IgnoreRule> parse(IgnoreFileType fileType, String content) {
+        myFixture.configureByText(fileType, content);
+        List<IgnoreRule> rules = new ArrayList<>();
+        for (IgnoreEntry entry : getFixtureChildrenEntries()) {
+            rules.add(new IgnoreRule(entry.getValue(), entry.getSyntax(), entry.isNegated()));
+        }
+        return rules;
+    }
+}
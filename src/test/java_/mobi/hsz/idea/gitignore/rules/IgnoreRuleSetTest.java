@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import mobi.hsz.idea.gitignore.util.MatcherUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class IgnoreRuleSetTest extends Common<IgnoreRuleSet> {
+    @Test
+    public void testShapes() {
+        assertShape("*.log", IgnoreRule.Shape.SUFFIX, ".log", false);
+        assertShape("*.d/", IgnoreRule.Shape.SUFFIX, ".d", true);
+        assertShape(".idea", IgnoreRule.Shape.BASENAME, ".idea", false);
+        assertShape("node_modules/", IgnoreRule.Shape.BASENAME, "node_modules", true);
+        assertShape("/build", IgnoreRule.Shape.ANCHORED, "build", false);
+        assertShape("/build/", IgnoreRule.Shape.ANCHORED, "build", true);
+        assertShape("dir/file.txt", IgnoreRule.Shape.ANCHORED, "dir/file.txt", false);
+        assertShape("**/foo", IgnoreRule.Shape.GENERAL, "**/foo", false);
+        assertShape("fil[eE].txt", IgnoreRule.Shape.GENERAL, "fil[eE].txt", false);
+        assertEquals(IgnoreRule.Shape.GENERAL, new IgnoreRule("foo", IgnoreBundle.Syntax.REGEXP, false).getShape());
+    }
+
+    @Test
+    public void testLastMatch() {
+        IgnoreRuleSet set = compile("*.log", "node_modules/", "/build", "!important.log", "**/tmp/*.log", ".idea");
+        MatcherUtil matcher = new MatcherUtil();
+
+        assertEquals(0, set.lastMatch(matcher, "dir/file.log"));
+        assertEquals(3, set.lastMatch(matcher, "dir/important.log"));
+        assertEquals(1, set.lastMatch(matcher, "dir/node_modules/"));
+        assertEquals(-1, set.lastMatch(matcher, "dir/node_modules"));
+        assertEquals(2, set.lastMatch(matcher, "build/"));
+        assertEquals(-1, set.lastMatch(matcher, "dir/build/"));
+        assertEquals(4, set.lastMatch(matcher, "a/tmp/file.log"));
+        assertEquals(5, set.lastMatch(matcher, ".idea/"));
+        assertEquals(-1, set.lastMatch(matcher, "file.txt"));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        IgnoreRuleSet set = compile("*.log", "node_modules/", "/build", "!important.log", "**/tmp/*.log", "a{b,c}");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (IgnoreRule rule : set.getRules()) {
+            rule.write(out);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        List<IgnoreRule> rules = new ArrayList<>();
+        for (IgnoreRule rule : set.getRules()) {
+            IgnoreRule restored = IgnoreRule.read(in);
+            assertEquals(rule, restored);
+            assertEquals(rule.getShape(), restored.getShape());
+            assertEquals(rule.getLiteral(), restored.getLiteral());
+            assertEquals(rule.isDirectoryOnly(), restored.isDirectoryOnly());
+            rules.add(restored);
+        }
+        assertEquals(0, in.available());
+        assertNotNull(rules.get(4).getGlobMatcher());
+
+        IgnoreRuleSet restored = IgnoreRuleSet.compile(rules);
+        MatcherUtil matcher = new MatcherUtil();
+        for (String path : new String[]{"dir/file.log", "dir/important.log", "a/tmp/file.log", "ab", "build/", "x"}) {
+            assertEquals(path, set.lastMatch(matcher, path), restored.lastMatch(matcher, path));
+        }
+    }
+
+    @Test
+    public void testReadInvalid() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF("*.log");
+        out.writeByte(42);
+        out.writeByte(0);
+
+        try {
+            IgnoreRule.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail();
+        }
+        catch (IOException ignored) {
+        }
+    }
+
+    private static void assertShape(String value, IgnoreRule.Shape shape, String literal, boolean directoryOnly) {
+        IgnoreRule rule = new IgnoreRule(value, IgnoreBundle.Syntax.GLOB, false);
+        assertEquals(value, shape, rule.getShape());
+        assertEquals(value, literal, rule.getLiteral());
+        assertEquals(value, directoryOnly, rule.isDirectoryOnly());
+    }
+
+    private static IgnoreRuleSet compile(String... values) {
+        List<IgnoreRule> rules = new ArrayList<>();
+        for (String value : values) {
+            boolean negated = value.startsWith("!");
+            rules.add(new IgnoreRule(negated ? value.substring(1) : value, IgnoreBundle.Syntax.GLOB, negated));
+        }
+        return IgnoreRuleSet.compile(rules);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import consulo.virtualFileSystem.VirtualFile;
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import mobi.hsz.idea.gitignore.file.type.kind.GitExcludeFileType;
+import mobi.hsz.idea.gitignore.file.type.kind.GitFileType;
+import mobi.hsz.idea.gitignore.indexing.IgnoreEntryOccurrence;
+import mobi.hsz.idea.gitignore.util.MatcherUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IgnoreRuleTrieTest extends Common<IgnoreRuleTrie> {
+    @Test
+    public void testSourcesPrecedence() {
+        VirtualFile file = myFixture.addFileToProject("debug.log", "").getVirtualFile();
+        VirtualFile directory = file.getParent();
+
+        IgnoreRuleTrie trie = IgnoreRuleTrie.builder()
+            .add(directory, occurrence("file:///exclude", "!debug.log"), GitExcludeFileType.INSTANCE,
+                IgnoreRuleTrie.Kind.EXCLUDE, 1)
+            .add(directory, occurrence("file:///local", "/build"), GitFileType.INSTANCE,
+                IgnoreRuleTrie.Kind.LOCAL, 0)
+            .add(directory, occurrence("file:///global", "*.log"), GitFileType.INSTANCE,
+                IgnoreRuleTrie.Kind.OUTER, 0)
+            .build();
+
+        IgnoreRuleTrie.Node node = trie.findDeepest(file);
+        assertNotNull(node);
+        List<IgnoreRuleTrie.Kind> kinds = new ArrayList<>();
+        for (IgnoreRuleTrie.Source source : node.getSources()) {
+            kinds.add(source.getKind());
+        }
+        assertEquals(List.of(IgnoreRuleTrie.Kind.OUTER, IgnoreRuleTrie.Kind.EXCLUDE, IgnoreRuleTrie.Kind.LOCAL), kinds);
+        assertEquals(Boolean.FALSE, lastMatch(node, "debug.log"));
+        assertEquals(Boolean.TRUE, lastMatch(node, "error.log"));
+    }
+
+    private static Boolean lastMatch(IgnoreRuleTrie.Node node, String path) {
+        MatcherUtil matcher = new MatcherUtil();
+        List<IgnoreRuleTrie.Source> sources = node.getSources();
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            IgnoreRuleSet ruleSet = sources.get(i).getOccurrence().getRuleSet();
+            int index = ruleSet.lastMatch(matcher, path);
+            if (index >= 0) {
+                return !ruleSet.getRules().get(index).isNegated();
+            }
+        }
+        return null;
+    }
+
+    private static IgnoreEntryOccurrence occurrence(String url, String... values) {
+        ArrayList<IgnoreRule> rules = new ArrayList<>();
+        for (String value : values) {
+            boolean negated = value.startsWith("!");
+            rules.add(new IgnoreRule(negated ? value.substring(1) : value, IgnoreBundle.Syntax.GLOB, negated));
+        }
+        return new IgnoreEntryOccurrence(url, rules);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import org.junit.Test;
+
+import java.util.List;
+
+public class RuleSetCacheTest extends Common<RuleSetCache> {
+    @Test
+    public void testPrivateConstructor() throws Exception {
+        privateConstructor(RuleSetCache.class);
+    }
+
+    @Test
+    public void testShared() {
+        List<IgnoreRule> first = List.of(rule("*.log", false), rule("important.log", true));
+        List<IgnoreRule> second = List.of(rule("*.log", false), rule("important.log", true));
+        List<IgnoreRule> other = List.of(rule("*.log", false), rule("important.log", false));
+
+        long hits = RuleSetCache.getHits();
+        IgnoreRuleSet ruleSet = RuleSetCache.get(first);
+        assertSame(ruleSet, RuleSetCache.get(second));
+        assertNotSame(ruleSet, RuleSetCache.get(other));
+        assertEquals(hits + 1, RuleSetCache.getHits());
+        assertTrue(RuleSetCache.size() >= 2);
+        assertTrue(RuleSetCache.getRuleCount() >= 4);
+        assertSame(IgnoreRuleSet.EMPTY, RuleSetCache.get(List.of()));
+    }
+
+    private static IgnoreRule rule(String value, boolean negated) {
+        return new IgnoreRule(value, IgnoreBundle.Syntax.GLOB, negated);
+    }
+}
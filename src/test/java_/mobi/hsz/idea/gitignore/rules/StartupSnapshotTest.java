@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.rules;
+
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.util.FileUrlCache;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class StartupSnapshotTest extends Common<StartupSnapshot> {
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path path = Files.createTempDirectory("snapshot").resolve("project.dat");
+        FileUrlCache cache = new FileUrlCache();
+        StartupSnapshot.create(RuleSnapshot.EMPTY, List.of("build", "node_modules"), null, cache).save(path);
+
+        StartupSnapshot loaded = StartupSnapshot.load(path);
+        assertNotNull(loaded);
+        assertEquals(Set.of("build", "node_modules"), loaded.getIgnoredDirectories());
+
+        RuleSnapshot restored = loaded.restore(List.of());
+        assertNotNull(restored);
+        assertTrue(restored.getTrie().isEmpty());
+
+        StartupSnapshot.create(RuleSnapshot.EMPTY, List.of("out"), loaded, cache).save(path);
+        loaded = StartupSnapshot.load(path);
+        assertNotNull(loaded);
+        assertEquals(Set.of("out"), loaded.getIgnoredDirectories());
+        try (Stream<Path> files = Files.list(path.getParent())) {
+            assertEquals(List.of(path), files.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testLoadInvalid() throws IOException {
+        Path path = Files.createTempFile("snapshot", ".dat");
+        assertNull(StartupSnapshot.load(path.resolveSibling("missing.dat")));
+
+        Files.write(path, new byte[]{0, 0, 0, 42});
+        assertNull(StartupSnapshot.load(path));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class AhoCorasickTest extends Common<AhoCorasick> {
+    @Test
+    public void testCandidates() {
+        AhoCorasick prefilter = new AhoCorasick(List.of(
+            new String[]{"foo"},
+            new String[]{"foo", "bar"},
+            new String[]{"he", "she", "hers"},
+            new String[0]
+        ));
+
+        assertEquals(4, prefilter.size());
+        assertCandidates(prefilter, "xfooy", 0, 3);
+        assertCandidates(prefilter, "barfoo", 0, 1, 3);
+        assertCandidates(prefilter, "ushers", 2, 3);
+        assertCandidates(prefilter, "shers", 2, 3);
+        assertCandidates(prefilter, "she", 3);
+        assertCandidates(prefilter, "", 3);
+    }
+
+    @Test
+    public void testEmpty() {
+        AhoCorasick prefilter = new AhoCorasick(List.of());
+
+        assertEquals(0, prefilter.size());
+        assertTrue(prefilter.candidates("foo").isEmpty());
+    }
+
+    private static void assertCandidates(AhoCorasick prefilter, String path, int... expected) {
+        BitSet candidates = prefilter.candidates(path);
+        assertEquals(path, expected.length, candidates.cardinality());
+        for (int index : expected) {
+            assertTrue(path, candidates.get(index));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachedConcurrentMapTest extends Common<CachedConcurrentMap> {
+    @Test
+    public void testSingleFlight() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachedConcurrentMap<String, Integer> map = CachedConcurrentMap.create(key -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException ignored) {
+            }
+            return calls.get();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> map.get("key")));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(Integer.valueOf(1), future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, calls.get());
+        assertEquals(1, map.getLoadCount());
+        assertTrue(map.getWaitCount() > 0);
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CachedConcurrentMap<String, Integer> map = CachedConcurrentMap.create(key -> calls.incrementAndGet());
+
+        assertEquals(Integer.valueOf(1), map.get("key"));
+        assertEquals(Integer.valueOf(2), map.refresh("key").get());
+        assertEquals(Integer.valueOf(2), map.get("key"));
+
+        map.update("key", (key, value) -> value + 10);
+        assertEquals(Integer.valueOf(12), map.get("key"));
+
+        map.remove("key");
+        assertNull(map.refresh("key").get());
+        assertEquals(Integer.valueOf(3), map.get("key"));
+    }
+
+    @Test
+    public void testFailedFetch() {
+        AtomicInteger calls = new AtomicInteger();
+        CachedConcurrentMap<String, Integer> map = CachedConcurrentMap.create(key -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException();
+            }
+            return calls.get();
+        });
+
+        try {
+            map.get("key");
+            fail();
+        }
+        catch (IllegalStateException ignored) {
+        }
+        assertEquals(Integer.valueOf(2), map.get("key"));
+    }
+}
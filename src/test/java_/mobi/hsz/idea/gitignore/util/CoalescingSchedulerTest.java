@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CoalescingSchedulerTest extends Common<CoalescingScheduler> {
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CoalescingScheduler scheduler = new CoalescingScheduler(1, timer, executor);
+        AtomicInteger runs = new AtomicInteger();
+        AtomicReference<Boolean> argument = new AtomicReference<>();
+        CoalescingScheduler.Task<Boolean> task = new CoalescingScheduler.Task<>(
+            "task", CoalescingScheduler.Priority.NORMAL, 50, Boolean::logicalAnd, value -> {
+                runs.incrementAndGet();
+                argument.set(value);
+            }
+        );
+
+        for (int i = 0; i < 10000; i++) {
+            scheduler.schedule(task, i != 5);
+        }
+        Thread.sleep(300);
+
+        assertEquals(1, runs.get());
+        assertEquals(Boolean.FALSE, argument.get());
+        assertEquals(9999, scheduler.getCoalescedCount());
+        assertEquals(0, scheduler.getPendingCount());
+
+        scheduler.schedule(task, true);
+        scheduler.cancel(task);
+        Thread.sleep(150);
+        assertEquals(1, runs.get());
+
+        timer.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testPriorities() throws InterruptedException {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CoalescingScheduler scheduler = new CoalescingScheduler(1, timer, executor);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(3);
+
+        List<CoalescingScheduler.Task<Void>> tasks = new ArrayList<>();
+        for (CoalescingScheduler.Priority priority : new CoalescingScheduler.Priority[]{
+            CoalescingScheduler.Priority.LOW, CoalescingScheduler.Priority.NORMAL, CoalescingScheduler.Priority.HIGH
+        }) {
+            tasks.add(new CoalescingScheduler.Task<>(priority.name(), priority, 10, (first, second) -> first, value -> {
+                order.add(priority.name());
+                latch.countDown();
+            }));
+        }
+        for (CoalescingScheduler.Task<Void> task : tasks) {
+            scheduler.schedule(task, null);
+        }
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("HIGH", "NORMAL", "LOW"), order);
+        assertTrue(scheduler.getMaxLatency() > 0);
+
+        timer.shutdown();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import consulo.virtualFileSystem.VirtualFile;
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+public class FileStatusCacheTest extends Common<FileStatusCache> {
+    @Test
+    public void testGetAndSet() {
+        VirtualFile foo = myFixture.addFileToProject("foo.txt", "foo").getVirtualFile();
+        VirtualFile bar = myFixture.addFileToProject("bar.txt", "bar").getVirtualFile();
+        FileStatusCache cache = new FileStatusCache();
+
+        assertNull(cache.get(foo));
+        assertTrue(cache.set(foo, true, cache.getGeneration()));
+        assertFalse(cache.set(bar, false, cache.getGeneration()));
+        assertEquals(Boolean.TRUE, cache.get(foo));
+        assertEquals(Boolean.FALSE, cache.get(bar));
+    }
+
+    @Test
+    public void testInvalidate() {
+        VirtualFile foo = myFixture.addFileToProject("foo.txt", "foo").getVirtualFile();
+        VirtualFile bar = myFixture.addFileToProject("bar.txt", "bar").getVirtualFile();
+        FileStatusCache cache = new FileStatusCache();
+
+        cache.set(foo, true, cache.getGeneration());
+        cache.set(bar, true, cache.getGeneration());
+        cache.invalidate(foo);
+        assertNull(cache.get(foo));
+        assertEquals(Boolean.TRUE, cache.get(bar));
+
+        cache.invalidateAll();
+        assertNull(cache.get(bar));
+    }
+
+    @Test
+    public void testStaleGeneration() {
+        VirtualFile foo = myFixture.addFileToProject("foo.txt", "foo").getVirtualFile();
+        FileStatusCache cache = new FileStatusCache();
+
+        int generation = cache.getGeneration();
+        cache.invalidateAll();
+        cache.set(foo, true, generation);
+        assertNull(cache.get(foo));
+    }
+
+    @Test
+    public void testInvalidateUnder() {
+        VirtualFile foo = myFixture.addFileToProject("dir/foo.txt", "foo").getVirtualFile();
+        VirtualFile bar = myFixture.addFileToProject("other/bar.txt", "bar").getVirtualFile();
+        FileStatusCache cache = new FileStatusCache();
+
+        int generation = cache.getGeneration();
+        cache.set(foo, true, generation);
+        cache.set(foo.getParent(), false, generation);
+        cache.set(bar, true, generation);
+        cache.invalidateUnder(foo.getParent());
+        assertNull(cache.get(foo));
+        assertNull(cache.get(foo.getParent()));
+        assertEquals(Boolean.TRUE, cache.get(bar));
+
+        cache.set(foo, false, generation);
+        assertNull(cache.get(foo));
+        cache.set(foo, false, cache.getGeneration());
+        assertEquals(Boolean.FALSE, cache.get(foo));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import mobi.hsz.idea.gitignore.Common;
+import mobi.hsz.idea.gitignore.IgnoreBundle;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+public class GlobMatcherTest extends Common<GlobMatcher> {
+    /** Paths checked against every glob to compare {@link GlobMatcher} with the regex translation. */
+    private static final String[] PATHS = new String[]{
+        "", "file.txt", "file.txt/", "dir/file.txt", "dir/subdir/file.txt", "file1.txt", "otherfile.txt",
+        "filE.txt", "fild.txt", "xdir/dir/file.txt", "xdir/file.txt", "fi-foo-le.txt", "fi/le.txt",
+        "fi/foo/le.txt", "foo/dir/file.txt", "dir/subdir/foo/file.txt", "dir/", "dir/subdir/", "dir/foo/bar.txt",
+        "node_modules/", "a/node_modules/", "a/b/c.log", "c.log", ".idea/", "build/", "src/build/"
+    };
+
+    @Test
+    public void testCreatePatternParity() {
+        assertMatches("file.txt", false, "file.txt", "dir/file.txt", "dir/subdir/file.txt");
+        assertNotMatches("file.txt", false, "file1.txt", "otherfile.txt");
+        assertMatches("file*.txt", false, "file.txt", "dir/file.txt");
+        assertMatches("fil[eE].txt", false, "file.txt", "filE.txt");
+        assertNotMatches("fil[eE].txt", false, "fild.txt");
+        assertMatches("dir/file.txt", false, "dir/file.txt");
+        assertNotMatches("dir/file.txt", false, "xdir/dir/file.txt", "xdir/file.txt");
+        assertMatches("/file.txt", false, "file.txt");
+        assertNotMatches("/file.txt", false, "dir/file.txt");
+        assertMatches("fi**le.txt", false, "file.txt", "fi-foo-le.txt");
+        assertNotMatches("fi**le.txt", false, "fi/le.txt", "fi/foo/le.txt");
+        assertMatches("**/dir/file.txt", false, "foo/dir/file.txt", "dir/file.txt");
+        assertMatches("/dir/**/file.txt", false, "dir/subdir/file.txt", "dir/subdir/foo/file.txt", "dir/file.txt");
+        assertMatches("dir/*", true, "dir/file.txt", "dir/subdir/");
+        assertNotMatches("dir/*", true, "dir/");
+        assertMatches("subdir", true, "dir/subdir/file.txt", "dir/subdir/");
+        assertNotMatches("subdir", true, "dir/foo/bar.txt");
+        assertMatches("subdir/", true, "dir/subdir/file.txt", "dir/subdir/");
+        assertNotMatches("subdir/", true, "dir/foo/bar.txt");
+    }
+
+    @Test
+    public void testRegexParity() {
+        String[] globs = new String[]{
+            "file.txt", "file*.txt", "fil[eE].txt", "fil[^e].txt", "fil[a-f].txt", "dir/file.txt", "/file.txt",
+            "fi**le.txt", "**/dir/file.txt", "/dir/**/file.txt", "dir/*", "dir/**", "subdir", "subdir/", "*", "**",
+            "*.log", "*/file.txt", "node_modules/", ".idea", "/build", "fi?e.txt", "\\*.txt", "***", "dir\\"
+        };
+
+        for (String glob : globs) {
+            for (boolean acceptChildren : new boolean[]{false, true}) {
+                Glob.clearCache();
+                Pattern pattern = Glob.createPattern(glob, IgnoreBundle.Syntax.GLOB, acceptChildren);
+                GlobMatcher matcher = GlobMatcher.compile(glob, acceptChildren);
+                assertNotNull(pattern);
+                assertNotNull(matcher);
+
+                for (String path : PATHS) {
+                    assertEquals(glob + " -> " + path, pattern.matcher(path).find(), matcher.matches(path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesFragment() {
+        GlobMatcher matcher = GlobMatcher.compile("*.log", false);
+        assertNotNull(matcher);
+        assertTrue(matcher.matches("/root/dir/c.log", 10, 15));
+        assertFalse(matcher.matches("/root/dir/c.log/x", 10, 17));
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(GlobMatcher.compile("file{1,2}.txt", false));
+        assertNull(GlobMatcher.compile("fil[e", false));
+        assertNull(GlobMatcher.compile("fil[[:alpha:]]", false));
+    }
+
+    private static void assertMatches(String glob, boolean acceptChildren, String... paths) {
+        GlobMatcher matcher = GlobMatcher.compile(glob, acceptChildren);
+        assertNotNull(matcher);
+        for (String path : paths) {
+            assertTrue(glob + " -> " + path, matcher.matches(path));
+        }
+    }
+
+    private static void assertNotMatches(String glob, boolean acceptChildren, String... paths) {
+        GlobMatcher matcher = GlobMatcher.compile(glob, acceptChildren);
+        assertNotNull(matcher);
+        for (String path : paths) {
+            assertFalse(glob + " -> " + path, matcher.matches(path));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class GlobSetMatcherTest extends Common<GlobSetMatcher> {
+    @Test
+    public void testLastMatch() {
+        GlobSetMatcher matcher = create("*.log", "dir/*", "**/tmp/*.log", "fil[eE].txt");
+
+        assertEquals(4, matcher.size());
+        assertEquals(0, matcher.lastMatch("a/b/c.log"));
+        assertEquals(1, matcher.lastMatch("dir/file.txt"));
+        assertEquals(2, matcher.lastMatch("a/tmp/c.log"));
+        assertEquals(3, matcher.lastMatch("dir/filE.txt"));
+        assertEquals(-1, matcher.lastMatch("other.txt"));
+        assertEquals(-1, matcher.lastMatch(""));
+    }
+
+    @Test
+    public void testParity() {
+        String[] globs = new String[]{"file*.txt", "/dir/**/file.txt", "subdir/", "fi?e.txt", "*", "node_modules/"};
+        String[] paths = new String[]{
+            "", "file.txt", "dir/file.txt", "dir/subdir/file.txt", "dir/subdir/", "fixe.txt", "node_modules/",
+            "a/node_modules/", "a/b/c.log"
+        };
+        GlobSetMatcher set = create(globs);
+
+        for (String path : paths) {
+            int expected = -1;
+            for (int i = 0; i < globs.length; i++) {
+                GlobMatcher matcher = GlobMatcher.compile(globs[i], false);
+                assertNotNull(matcher);
+                if (matcher.matches(path)) {
+                    expected = i;
+                }
+            }
+            assertEquals(path, expected, set.lastMatch(path));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        GlobSetMatcher matcher = create();
+
+        assertEquals(0, matcher.size());
+        assertEquals(-1, matcher.lastMatch("file.txt"));
+    }
+
+    private static GlobSetMatcher create(String... globs) {
+        List<GlobMatcher> matchers = new ArrayList<>();
+        for (String glob : globs) {
+            matchers.add(GlobMatcher.compile(glob, false));
+        }
+        return GlobSetMatcher.create(matchers);
+    }
+}
@@ -45,6 +45,26 @@ public class MatcherUtilTest extends Common<MatcherUtil> {
         assertTrue(util.match(pattern, "xfooy"));
     }
 
+    @Test
+    public void testMatchCache() {
+        Pattern pattern = Pattern.compile("foo");
+        MatcherUtil util = new MatcherUtil(2);
+
+        assertEquals(2, util.getCapacity());
+        assertTrue(util.match(pattern, "foo"));
+        assertTrue(util.match(pattern, "foo"));
+        assertTrue(util.match(Pattern.compile("foo"), "foo"));
+        assertEquals(2, util.getHits());
+        assertEquals(1, util.getMisses());
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i % 2 == 0, util.match(pattern, i % 2 == 0 ? "foo" + i : "bar" + i));
+        }
+        assertTrue(util.getEvictions() > 0);
+        assertFalse(util.match(Pattern.compile("foo", Pattern.CASE_INSENSITIVE), "bar"));
+        assertTrue(util.match(Pattern.compile("foo", Pattern.CASE_INSENSITIVE), "FOO"));
+    }
+
     @Test
     public void testMatchAllParts() {
         String[] partsA = new String[]{"foo"};
@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import consulo.virtualFileSystem.VirtualFile;
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class StatusDeltaTrackerTest extends Common<StatusDeltaTracker> {
+    @Test
+    public void testComputeChanges() {
+        VirtualFile foo = myFixture.addFileToProject("foo.txt", "foo").getVirtualFile();
+        VirtualFile bar = myFixture.addFileToProject("bar.txt", "bar").getVirtualFile();
+        StatusDeltaTracker tracker = new StatusDeltaTracker(10, 10);
+        tracker.record(foo, false);
+        tracker.record(bar, true);
+
+        Set<VirtualFile> ignored = new HashSet<>();
+        ignored.add(foo);
+        ignored.add(bar);
+        List<VirtualFile> changed = tracker.computeChanges(ignored::contains);
+        assertNotNull(changed);
+        assertEquals(1, changed.size());
+        assertEquals(foo, changed.get(0));
+
+        changed = tracker.computeChanges(ignored::contains);
+        assertNotNull(changed);
+        assertTrue(changed.isEmpty());
+    }
+
+    @Test
+    public void testInterruptedPass() {
+        VirtualFile foo = myFixture.addFileToProject("foo.txt", "foo").getVirtualFile();
+        VirtualFile bar = myFixture.addFileToProject("bar.txt", "bar").getVirtualFile();
+        StatusDeltaTracker tracker = new StatusDeltaTracker(10, 10);
+        tracker.record(foo, false);
+        tracker.record(bar, false);
+
+        Set<VirtualFile> evaluated = new HashSet<>();
+        try {
+            tracker.computeChanges(file -> {
+                if (!evaluated.isEmpty()) {
+                    throw new IllegalStateException();
+                }
+                evaluated.add(file);
+                return true;
+            });
+            fail();
+        }
+        catch (IllegalStateException ignored) {
+        }
+
+        List<VirtualFile> changed = tracker.computeChanges(file -> true);
+        assertNotNull(changed);
+        assertEquals(new HashSet<>(List.of(foo, bar)), new HashSet<>(changed));
+    }
+
+    @Test
+    public void testLimits() {
+        VirtualFile foo = myFixture.addFileToProject("foo.txt", "foo").getVirtualFile();
+        VirtualFile bar = myFixture.addFileToProject("bar.txt", "bar").getVirtualFile();
+        StatusDeltaTracker tracker = new StatusDeltaTracker(1, 10);
+        tracker.record(foo, false);
+        tracker.record(bar, false);
+        assertNull(tracker.computeChanges(file -> false));
+        assertEquals(0, tracker.size());
+
+        tracker = new StatusDeltaTracker(10, 1);
+        tracker.record(foo, false);
+        tracker.record(bar, false);
+        assertNull(tracker.computeChanges(file -> true));
+        assertEquals(0, tracker.size());
+    }
+}
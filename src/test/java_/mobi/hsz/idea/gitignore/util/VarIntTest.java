@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018 hsz Jakub Chrzanowski <jakub@hsz.mobi>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package mobi.hsz.idea.gitignore.util;
+
+import mobi.hsz.idea.gitignore.Common;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+public class VarIntTest extends Common<VarInt> {
+    @Test
+    public void testPrivateConstructor() throws InvocationTargetException, NoSuchMethodException, InstantiationException, IllegalAccessException {
+        privateConstructor(VarInt.class);
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        assertRoundTrip(0, 1);
+        assertRoundTrip(127, 1);
+        assertRoundTrip(128, 2);
+        assertRoundTrip(16383, 2);
+        assertRoundTrip(16384, 3);
+        assertRoundTrip(Integer.MAX_VALUE, 5);
+    }
+
+    @Test
+    public void testMalformed() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[]{-1, -1, -1, -1, -1, -1}));
+        try {
+            VarInt.read(in);
+            fail();
+        }
+        catch (IOException ignored) {
+        }
+    }
+
+    private static void assertRoundTrip(int value, int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VarInt.write(new DataOutputStream(bytes), value);
+        assertEquals(size, bytes.size());
+        assertEquals(value, VarInt.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+    }
+}